@@ -0,0 +1,342 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope;
+
+import info.magnolia.vaadin.periscope.result.Result;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.vaadin.ui.Component;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+
+/**
+ * Lightweight alternative to {@link ResultList}, rendering all results in the browser through a single component.
+ * Results are sent as compact JSON arrays instead of a tree of layouts and labels per result, and the server only
+ * keeps the results themselves, keyed by a number the browser reports back when one is clicked or selected.
+ */
+public class ClientResultList extends ResultView {
+
+    private static final int NONE = -1;
+
+    private final ResultListRenderer renderer;
+
+    private final List<Section> sections = new ArrayList<>();
+    private final Map<Integer, Result> results = new HashMap<>();
+    private final Map<Integer, Runnable> showMoreActions = new HashMap<>();
+
+    /**
+     * Sections of the current query come first, followed by the stale ones of the previous query.
+     */
+    private int freshSections = 0;
+    private int nextKey = 0;
+    private int selectedKey = NONE;
+    private boolean loading = false;
+
+    public ClientResultList() {
+        renderer = new ResultListRenderer(this::clicked, this::render);
+        renderer.addStyleName("result-list");
+    }
+
+    @Override
+    public Component getLayout() {
+        return renderer;
+    }
+
+    @Override
+    Optional<Result> getSelectedOrFirstResult() {
+        if (selectedKey != NONE) {
+            return Optional.ofNullable(results.get(selectedKey));
+        }
+        if (sections.isEmpty() || sections.get(0).keys.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(results.get(sections.get(0).keys.get(0)));
+    }
+
+    @Override
+    boolean activateSelectedControl() {
+        final Runnable showMore = showMoreActions.get(selectedKey);
+        if (showMore != null) {
+            showMore.run();
+        }
+        return showMore != null;
+    }
+
+    @Override
+    void select(final String key) {
+        try {
+            final int parsed = Integer.parseInt(key);
+            selectedKey = results.containsKey(parsed) || showMoreActions.containsKey(parsed) ? parsed : NONE;
+        } catch (NumberFormatException e) {
+            selectedKey = NONE;
+        }
+    }
+
+    @Override
+    void clearSelector() {
+        selectedKey = NONE;
+    }
+
+    @Override
+    void beginUpdate() {
+        clearSelector();
+        for (int i = sections.size() - 1; i >= freshSections; i--) {
+            if (indexOf(sections.get(i).title, 0, freshSections) >= 0) {
+                removeSection(i);
+            }
+        }
+        freshSections = 0;
+    }
+
+    @Override
+    void endUpdate() {
+        if (sections.size() > freshSections) {
+            while (sections.size() > freshSections) {
+                forget(sections.remove(sections.size() - 1));
+            }
+            renderer.truncate(freshSections);
+        }
+    }
+
+    @Override
+    void appendResults(final String title, final List<Result> results) {
+        int index = indexOf(title, 0, freshSections);
+        if (index < 0) {
+            final int stale = indexOf(title, freshSections, sections.size());
+            if (stale >= 0) {
+                removeSection(stale);
+            }
+            if (results.isEmpty()) {
+                return;
+            }
+            index = startSection(title);
+        }
+        appendEntries(index, results);
+    }
+
+    @Override
+    void appendToSection(final String title, final List<Result> results) {
+        appendResults(title, results);
+    }
+
+    @Override
+    void showShowMore(final String title, final Runnable showMore) {
+        final int index = indexOf(title, 0, freshSections);
+        if (index < 0) {
+            return;
+        }
+
+        final Section section = sections.get(index);
+        if (section.showMoreKey == NONE) {
+            section.showMoreKey = nextKey++;
+            renderer.setShowMore(index, section.showMoreKey);
+        }
+        showMoreActions.put(section.showMoreKey, showMore);
+    }
+
+    @Override
+    void hideShowMore(final String title) {
+        final int index = indexOf(title, 0, freshSections);
+        if (index < 0 || sections.get(index).showMoreKey == NONE) {
+            return;
+        }
+
+        final Section section = sections.get(index);
+        showMoreActions.remove(section.showMoreKey);
+        section.showMoreKey = NONE;
+        renderer.setShowMore(index, NONE);
+    }
+
+    @Override
+    void appendNotice(final String title, final String notice) {
+        int index = indexOf(title, 0, freshSections);
+        if (index < 0) {
+            final int stale = indexOf(title, freshSections, sections.size());
+            if (stale >= 0) {
+                removeSection(stale);
+            }
+            index = startSection(title);
+        }
+        sections.get(index).notice = notice;
+        renderer.setNotice(index, notice);
+    }
+
+    @Override
+    void clear() {
+        sections.clear();
+        loading = false;
+        results.clear();
+        showMoreActions.clear();
+        freshSections = 0;
+        selectedKey = NONE;
+        renderer.clear();
+    }
+
+    @Override
+    void showLoadingIcon() {
+        loading = true;
+        renderer.setLoading(true);
+    }
+
+    @Override
+    void hideLoadingIcon() {
+        loading = false;
+        renderer.setLoading(false);
+    }
+
+    private void clicked(final int key) {
+        final Result result = results.get(key);
+        if (result != null) {
+            resultPicked(result);
+        } else if (showMoreActions.containsKey(key)) {
+            showMoreActions.get(key).run();
+        }
+    }
+
+    private int indexOf(final String title, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            if (sections.get(i).title.equals(title)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Start a section after the last one of the current query.
+     */
+    private int startSection(final String title) {
+        final int index = freshSections++;
+        sections.add(index, new Section(title));
+        renderer.startSection(index, title);
+        return index;
+    }
+
+    private void appendEntries(final int index, final List<Result> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+
+        final Section section = sections.get(index);
+        final List<Integer> keys = new ArrayList<>(results.size());
+        for (Result result : results) {
+            final int key = nextKey++;
+            this.results.put(key, result);
+            keys.add(key);
+        }
+        section.keys.addAll(keys);
+        renderer.appendEntries(index, entries(keys));
+    }
+
+    /**
+     * @return Key, text, icon and (for plain text) match offsets of each entry, set in that order as JSON arrays only
+     * grow at their end
+     */
+    private JsonArray entries(final List<Integer> keys) {
+        final JsonArray entries = Json.createArray();
+        for (int key : keys) {
+            final Result result = results.get(key);
+            final JsonArray entry = Json.createArray();
+            entry.set(0, key);
+            // plain text gets highlighted in the browser
+            entry.set(1, result.getText().orElse(result.getHtmlText()));
+            entry.set(2, result.getIcon().orElse(""));
+            if (result.getText().isPresent()) {
+                final JsonArray matches = Json.createArray();
+                for (int match : result.getMatches().get()) {
+                    matches.set(matches.length(), match);
+                }
+                entry.set(3, matches);
+            }
+            entries.set(entries.length(), entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Send all sections to the browser again, whose side of the renderer starts out empty whenever it is created, e.g.
+     * after the component was re-attached or a {@code @PreserveOnRefresh} UI was reloaded.
+     */
+    private void render() {
+        renderer.clear();
+        for (int index = 0; index < sections.size(); index++) {
+            final Section section = sections.get(index);
+            renderer.startSection(index, section.title);
+            if (!section.keys.isEmpty()) {
+                renderer.appendEntries(index, entries(section.keys));
+            }
+            if (section.notice != null) {
+                renderer.setNotice(index, section.notice);
+            }
+            if (section.showMoreKey != NONE) {
+                renderer.setShowMore(index, section.showMoreKey);
+            }
+        }
+        renderer.setLoading(loading);
+    }
+
+    private void removeSection(final int index) {
+        forget(sections.remove(index));
+        renderer.removeSection(index);
+    }
+
+    private void forget(final Section section) {
+        section.keys.forEach(results::remove);
+        showMoreActions.remove(section.showMoreKey);
+        if (section.keys.contains(selectedKey) || section.showMoreKey == selectedKey) {
+            selectedKey = NONE;
+        }
+    }
+
+    /**
+     * Keys of the entries and "show more" control of one supplier's section, and its notice if any.
+     */
+    private static class Section {
+
+        private final String title;
+        private final List<Integer> keys = new ArrayList<>();
+        private int showMoreKey = NONE;
+        private String notice;
+
+        private Section(final String title) {
+            this.title = title;
+        }
+    }
+}
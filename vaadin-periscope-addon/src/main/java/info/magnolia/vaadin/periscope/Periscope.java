@@ -33,28 +33,50 @@
  */
 package info.magnolia.vaadin.periscope;
 
+import info.magnolia.vaadin.periscope.metrics.PeriscopeMetrics;
 import info.magnolia.vaadin.periscope.order.NeuralNetworkManager;
+import info.magnolia.vaadin.periscope.order.Ranker;
+import info.magnolia.vaadin.periscope.order.TrainingQueue;
+import info.magnolia.vaadin.periscope.query.ParallelSearch;
+import info.magnolia.vaadin.periscope.query.QueryDispatcher;
+import info.magnolia.vaadin.periscope.query.SearchOutcome;
 import info.magnolia.vaadin.periscope.result.AsyncResultSupplier;
+import info.magnolia.vaadin.periscope.result.CancellationToken;
+import info.magnolia.vaadin.periscope.result.Highlighter;
+import info.magnolia.vaadin.periscope.result.QueryContext;
 import info.magnolia.vaadin.periscope.result.Result;
+import info.magnolia.vaadin.periscope.result.ResultSubscriber;
+import info.magnolia.vaadin.periscope.result.ResultSubscription;
 import info.magnolia.vaadin.periscope.result.ResultSupplier;
+import info.magnolia.vaadin.periscope.result.SearchCancelledException;
 import info.magnolia.vaadin.periscope.result.SearchFailedException;
+import info.magnolia.vaadin.periscope.result.StreamingResultSupplier;
 import info.magnolia.vaadin.periscope.speech.BrowserSpeechRecognizer;
 import info.magnolia.vaadin.periscope.speech.SpeechRecognizer;
+import info.magnolia.vaadin.periscope.tracing.Span;
+import info.magnolia.vaadin.periscope.tracing.Tracer;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
 
 import com.google.common.collect.Lists;
 import com.vaadin.annotations.StyleSheet;
 import com.vaadin.annotations.Widgetset;
 import com.vaadin.event.ShortcutAction;
-import com.vaadin.event.ShortcutListener;
+import com.vaadin.shared.communication.PushMode;
 import com.vaadin.ui.Button;
 import com.vaadin.ui.Component;
+import com.vaadin.ui.PushConfiguration;
+import com.vaadin.ui.UI;
 import com.vaadin.v7.ui.AbstractTextField;
 import com.vaadin.v7.ui.TextField;
 import com.vaadin.v7.ui.VerticalLayout;
@@ -66,26 +88,61 @@ import com.vaadin.v7.ui.VerticalLayout;
 @Widgetset("com.vaadin.v7.Vaadin7WidgetSet")
 public class Periscope extends VerticalLayout {
 
+    private static final int FALLBACK_POLL_INTERVAL = 500;
+
     private final Collection<ResultSupplier> resultSuppliers;
     private final Collection<AsyncResultSupplier> asyncResultSuppliers;
-    private final Collection<CompletableFuture> runningAsyncSearches = new ArrayList<>();
+    private final Collection<CompletableFuture> runningAsyncSearches = ConcurrentHashMap.newKeySet();
 
     private final TextField input;
-    private final ResultList resultList;
+    private final ResultView resultList;
     private final SpeechRecognizer speechRecognizer;
-    private final NeuralNetworkManager resultsNetworkManager;
+    private final Ranker ranker;
+    private final QueryDispatcher queryDispatcher;
+    private final ParallelSearch parallelSearch;
+    private final PushBatcher pushBatcher;
+    private final AtomicLong lastTextChange = new AtomicLong();
+
+    private QueryContext runningQuery = QueryContext.unbounded();
+    private String consumedQuery = "";
+    private PeriscopeMetrics metrics = PeriscopeMetrics.noop();
+    private Tracer tracer = Tracer.noop();
+    private long asyncTimeout = 10000;
+    private int resultsPerSupplier = 10;
+    private int candidatesPerSupplier = 100;
+    private boolean pushAvailable = false;
+    private boolean polling = false;
 
     public Periscope(final Collection<ResultSupplier> resultSuppliers, final Collection<AsyncResultSupplier> asyncResultSuppliers) {
         this(resultSuppliers, asyncResultSuppliers, new BrowserSpeechRecognizer());
     }
 
     public Periscope(final Collection<ResultSupplier> resultSuppliers, final Collection<AsyncResultSupplier> asyncResultSuppliers, final SpeechRecognizer speechRecognizer) {
+        this(resultSuppliers, asyncResultSuppliers, speechRecognizer, SharedRanker.INSTANCE);
+    }
+
+    /**
+     * @param ranker Orders the results of every supplier, e.g. a {@link info.magnolia.vaadin.periscope.order.FrecencyRanker}
+     * where a neural network is not worth its startup time and memory
+     */
+    public Periscope(final Collection<ResultSupplier> resultSuppliers, final Collection<AsyncResultSupplier> asyncResultSuppliers, final SpeechRecognizer speechRecognizer, final Ranker ranker) {
+        this(resultSuppliers, asyncResultSuppliers, speechRecognizer, ranker, new ResultList());
+    }
+
+    /**
+     * @param resultView Renders the results, e.g. a {@link ClientResultList} to keep server memory and payload small for
+     * long result lists
+     */
+    public Periscope(final Collection<ResultSupplier> resultSuppliers, final Collection<AsyncResultSupplier> asyncResultSuppliers, final SpeechRecognizer speechRecognizer, final Ranker ranker, final ResultView resultView) {
         super();
 
         this.resultSuppliers = resultSuppliers;
         this.asyncResultSuppliers = asyncResultSuppliers;
         this.speechRecognizer = speechRecognizer;
-        this.resultsNetworkManager = new NeuralNetworkManager();
+        this.ranker = ranker;
+        this.queryDispatcher = new QueryDispatcher(this::dispatchQuery);
+        this.parallelSearch = new ParallelSearch();
+        this.pushBatcher = new PushBatcher(this::getUI);
 
         this.addStyleName("periscope");
 
@@ -94,51 +151,194 @@ public class Periscope extends VerticalLayout {
         input.addStyleName("search-field");
         this.addComponent(input);
 
-        resultList = new ResultList();
+        resultList = resultView;
         this.addComponent(resultList.getLayout());
 
-        input.addTextChangeListener(event -> consumeQuery(event.getText(), false));
+        input.addTextChangeListener(event -> queryTyped(event.getText()));
         input.setTextChangeEventMode(AbstractTextField.TextChangeEventMode.EAGER);
 
-        input.addShortcutListener(createInputShortcut(ShortcutAction.KeyCode.ARROW_DOWN, () -> resultList.moveSelector(1)));
-        input.addShortcutListener(createInputShortcut(ShortcutAction.KeyCode.ARROW_UP, () -> resultList.moveSelector(-1)));
-        input.addShortcutListener(createInputShortcut(ShortcutAction.KeyCode.ENTER, () -> {
-            final Optional<Result> selectedOrFirstResult = resultList.getSelectedOrFirstResult();
-            try {
-                selectedOrFirstResult.ifPresent(this::resultPicked);
-            } catch (SearchFailedException e) {
-                changeResultListToReflectException();
-            }
-
-            // TODO: Find a way to blur input (remove focus)
-        }));
-        input.addBlurListener(event -> resultList.clearSelector());
+        new KeyboardSelection(this, this::selectionEntered);
 
         resultList.onResultPick(this::resultPicked);
 
         this.addComponent(createSpeechButton());
     }
 
+    @Override
+    public void attach() {
+        super.attach();
+
+        pushAvailable = enablePush(getUI());
+        if (!pushAvailable) {
+            // without push, results of a debounced query could not be delivered; let the browser debounce instead
+            input.setTextChangeEventMode(AbstractTextField.TextChangeEventMode.LAZY);
+            input.setTextChangeTimeout((int) queryDispatcher.getDelay());
+        }
+    }
+
+    @Override
+    public void detach() {
+        cancelRunningQuery();
+        pushBatcher.discard();
+        if (polling) {
+            getUI().setPollInterval(-1);
+            polling = false;
+        }
+
+        super.detach();
+    }
+
+    /**
+     * @return Dispatcher debouncing typed queries, e.g. to tune its delays
+     */
+    public QueryDispatcher getQueryDispatcher() {
+        return queryDispatcher;
+    }
+
+    /**
+     * @return Parallel executor of synchronous suppliers, e.g. to tune their timeouts
+     */
+    public ParallelSearch getParallelSearch() {
+        return parallelSearch;
+    }
+
+    /**
+     * @param asyncTimeout Deadline in milliseconds for asynchronous suppliers to deliver their results
+     */
+    public void setAsyncTimeout(final long asyncTimeout) {
+        this.asyncTimeout = asyncTimeout;
+    }
+
+    /**
+     * @param metrics Receives latencies and outcomes of every supplier and query stage, e.g. a shared
+     * {@link info.magnolia.vaadin.periscope.metrics.JmxMetrics}
+     */
+    public void setMetrics(final PeriscopeMetrics metrics) {
+        this.metrics = metrics;
+        if (ranker == SharedRanker.INSTANCE) {
+            SharedRanker.registerGauges(metrics);
+        }
+    }
+
+    /**
+     * @param tracer Traces every query from the text change to the push of its results, one span per supplier search,
+     * ranking and rendering, e.g. to a {@link info.magnolia.vaadin.periscope.tracing.FileSpanExporter}; queries are
+     * only recorded verbatim if the tracer was created to do so
+     */
+    public void setTracer(final Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * @param resultsPerSupplier Number of results shown per supplier at first, and added by each "show more"
+     */
+    public void setResultsPerSupplier(final int resultsPerSupplier) {
+        this.resultsPerSupplier = resultsPerSupplier;
+    }
+
+    /**
+     * @param candidatesPerSupplier Number of results fetched from a supplier at once; they are ranked as a whole, so
+     * this bounds how far down the supplier's own order a result can be and still be ranked first
+     */
+    public void setCandidatesPerSupplier(final int candidatesPerSupplier) {
+        this.candidatesPerSupplier = candidatesPerSupplier;
+    }
+
     private void resultPicked(Result result) {
-        resultsNetworkManager.train(input.getValue(), result);
+        ranker.train(input.getValue(), result);
         result.getAction().run();
     }
 
-    private synchronized void consumeQuery(final String query, final boolean autoExecuteFirst) {
-        // FIXME: Properly use push instead
-        getUI().setPollInterval(500);
+    /**
+     * Pick the result selected in the browser, or the first one if none is selected. If the query is still within the
+     * debounce window, the listed results belong to an earlier query: the pending one is consumed right away instead,
+     * and its first result picked.
+     */
+    private void selectionEntered(final String key) {
+        final String query = input.getValue();
+        if (!query.equals(consumedQuery)) {
+            queryDispatcher.bypass(query);
+            consumeQuery(query, false);
+        } else {
+            resultList.select(key);
+            if (resultList.activateSelectedControl()) {
+                return;
+            }
+        }
 
-        runningAsyncSearches.forEach(search -> search.cancel(true));
+        final Optional<Result> selectedOrFirstResult = resultList.getSelectedOrFirstResult();
+        try {
+            selectedOrFirstResult.ifPresent(this::resultPicked);
+        } catch (SearchFailedException e) {
+            changeResultListToReflectException();
+        }
 
-        resultList.clear();
+        // TODO: Find a way to blur input (remove focus)
+    }
+
+    private void queryTyped(final String query) {
+        lastTextChange.set(System.nanoTime());
+        if (pushAvailable) {
+            queryDispatcher.submit(query);
+        } else {
+            queryDispatcher.bypass(query);
+            consumeQuery(query, false);
+        }
+    }
+
+    private void dispatchQuery(final String query) {
+        pushBatcher.submit(() -> consumeQuery(query, false));
+    }
 
-        for (final ResultSupplier supplier : resultSuppliers) {
-            List<Result> results = supplier.search(query);
+    private void consumeQuery(final String query, final boolean autoExecuteFirst) {
+        final long start = System.currentTimeMillis();
+        final long startNanos = System.nanoTime();
+        final AtomicBoolean firstRendered = new AtomicBoolean(false);
+        final Runnable resultsShown = () -> {
+            if (firstRendered.compareAndSet(false, true)) {
+                metrics.stageCompleted(PeriscopeMetrics.Stage.FIRST_RENDER, System.nanoTime() - startNanos);
+            }
+        };
 
-            resultsNetworkManager.addResults(results);
-            resultsNetworkManager.sort(query, results);
+        cancelRunningQuery();
+
+        // the trace starts at the keystroke, so debouncing shows up as the dispatch span
+        final long textChange = lastTextChange.getAndSet(0);
+        final Span trace = tracer.startTrace("query", textChange != 0 ? textChange : startNanos).query(query);
+        if (textChange != 0) {
+            trace.child("dispatch", textChange).end();
+        }
+
+        final QueryContext context = new QueryContext(new CancellationToken(), start + asyncTimeout, trace).withHighlighter(Highlighter.of(query));
+        runningQuery = context;
+        consumedQuery = query;
+
+        resultList.beginUpdate();
+
+        final ParallelSearch.FanOut searches = parallelSearch.start(resultSuppliers, query, context, candidatesPerSupplier);
+        for (final SearchOutcome outcome : searches) {
+            final String title = outcome.getSupplier().getTitle();
+            if (outcome.isTimedOut()) {
+                metrics.searchTimedOut(title, outcome.getDurationNanos());
+                resultList.appendNotice(title, "Timed out");
+                continue;
+            }
+            if (outcome.getFailure().isPresent()) {
+                metrics.searchFailed(title, outcome.getDurationNanos());
+                resultList.appendNotice(title, "Search failed");
+                continue;
+            }
+
+            List<Result> results = outcome.getResults();
+            metrics.searchCompleted(title, outcome.getDurationNanos(), results.size());
+
+            rank(query, results, trace);
 
             if (autoExecuteFirst && !results.isEmpty()) {
+                searches.cancel();
+                resultList.endUpdate();
+                trace.end();
+
                 // typically a case of vocal command
                 try {
                     results.get(0).getAction().run();
@@ -150,65 +350,309 @@ public class Periscope extends VerticalLayout {
                 return;
             }
 
-            resultList.appendResults(supplier.getTitle(), results);
+            final ResultSupplier supplier = outcome.getSupplier();
+            final Span render = trace.child("render").attribute("supplier", title);
+            createPager(title, query, context, offset -> searchPage(supplier, query, context, offset)).start(results);
+            render.end();
+            if (!results.isEmpty()) {
+                resultsShown.run();
+            }
+        }
+        queryDispatcher.recordLatency(System.currentTimeMillis() - start);
+        metrics.stageCompleted(PeriscopeMetrics.Stage.SYNC_RESULTS, System.nanoTime() - startNanos);
+        if (trace.isRecording()) {
+            // synchronous results go out with the current request or push, just like this no-op
+            pushBatcher.submit(() -> {
+            }, trace.child("push"));
+        }
+        if (asyncResultSuppliers.isEmpty()) {
+            resultList.endUpdate();
+            trace.end();
         }
 
         final AtomicBoolean autoExecuteDone = new AtomicBoolean(false);
         asyncResultSuppliers.forEach(supplier -> {
             resultList.showLoadingIcon();
 
-            // XXX: Synchronize?
-            final CompletableFuture<List<Result>> search = supplier.search(query);
+            if (supplier instanceof StreamingResultSupplier && !autoExecuteFirst) {
+                streamResults((StreamingResultSupplier) supplier, query, context, resultsShown);
+                return;
+            }
+
+            final long searchStart = System.nanoTime();
+            final Span searchSpan = trace.child("search").attribute("supplier", supplier.getTitle());
+            final CompletableFuture<List<Result>> search = supplier.search(query, context.withSpan(searchSpan), 0, candidatesPerSupplier);
             runningAsyncSearches.add(search);
-            search.thenAccept(results -> {
-                        resultsNetworkManager.addResults(results);
-                        resultsNetworkManager.sort(query, results);
+            search.whenComplete((results, failure) -> {
+                if (context.getToken().isCancelled()) {
+                    metrics.searchCancelled(supplier.getTitle(), System.nanoTime() - searchStart);
+                    searchSpan.attribute("status", "cancelled").end();
+                    return;
+                }
 
-                        resultList.hideLoadingIcon();
-                        runningAsyncSearches.remove(search);
+                // rank off the UI thread, only rendering needs the session lock
+                if (failure == null) {
+                    metrics.searchCompleted(supplier.getTitle(), System.nanoTime() - searchStart, results.size());
+                    searchSpan.attribute("results", results.size()).end();
+                    queryDispatcher.recordLatency(System.currentTimeMillis() - start);
+                    rank(query, results, trace);
+                } else {
+                    recordFailure(supplier.getTitle(), System.nanoTime() - searchStart, unwrap(failure));
+                    searchSpan.attribute("status", "failed").error(unwrap(failure)).end();
+                }
 
-                        if (autoExecuteFirst && autoExecuteDone.get()) {
-                            return;
-                        }
+                pushBatcher.submit(() -> {
+                    if (context.getToken().isCancelled()) {
+                        return;
+                    }
+
+                    asyncSearchDone(search);
 
-                        if (autoExecuteFirst && !results.isEmpty()) {
-                            // typically a case of vocal command
-                            try {
-                                results.get(0).getAction().run();
-                            }
-                            // TODO: shall be lesser scoped.
-                            catch (Exception e) {
-                                changeResultListToReflectException();
-                            }
-                            autoExecuteDone.set(true);
-                            return;
+                    if (failure != null) {
+                        resultList.appendNotice(supplier.getTitle(), unwrap(failure) instanceof SearchCancelledException ? "Timed out" : "Search failed");
+                        return;
+                    }
+
+                    if (autoExecuteFirst && autoExecuteDone.get()) {
+                        return;
+                    }
+
+                    if (autoExecuteFirst && !results.isEmpty()) {
+                        resultList.endUpdate();
+                        // typically a case of vocal command
+                        try {
+                            results.get(0).getAction().run();
+                        }
+                        // TODO: shall be lesser scoped.
+                        catch (Exception e) {
+                            changeResultListToReflectException();
                         }
+                        autoExecuteDone.set(true);
+                        return;
+                    }
 
-                        resultList.appendResults(supplier.getTitle(), results);
-                        getUI().push();
+                    final Span render = trace.child("render").attribute("supplier", supplier.getTitle());
+                    createPager(supplier.getTitle(), query, context, offset -> searchPage(supplier, query, context, offset)).start(results);
+                    render.end();
+                    if (!results.isEmpty()) {
+                        resultsShown.run();
                     }
-            );
+                }, trace.child("push").attribute("supplier", supplier.getTitle()));
+            });
         });
+        updatePolling();
     }
 
-    private void changeResultListToReflectException() {
-        resultList.clear();
-        // TODO: Have to be more specific e.g. red etc.
-        resultList.appendResults("Command result", Lists.newArrayList(new Result("Voice Command failed.", () -> {
-        })));
+    /**
+     * @param batchLoader Fetches further batches off the UI thread; they are rendered through push or polling
+     */
+    private SectionPager createPager(final String title, final String query, final QueryContext context,
+                                     final IntFunction<CompletableFuture<List<Result>>> batchLoader) {
+        return new SectionPager(title, resultList, resultsPerSupplier, candidatesPerSupplier, batchLoader, batch -> rank(query, batch, context.getSpan()), task -> pushBatcher.submit(() -> {
+            if (!context.getToken().isCancelled()) {
+                task.run();
+            }
+        }));
+    }
+
+    private void rank(final String query, final List<Result> results, final Span parent) {
+        final Span span = parent.child("rank").attribute("results", results.size());
+        final long start = System.nanoTime();
+        ranker.addResults(results);
+        ranker.sort(query, results);
+        metrics.stageCompleted(PeriscopeMetrics.Stage.RANKING, System.nanoTime() - start);
+        span.end();
     }
 
-    private ShortcutListener createInputShortcut(final int key, final Runnable action) {
-        return new ShortcutListener("Shortcut for key #" + key, key, null) {
+    private void recordFailure(final String supplier, final long nanos, final Throwable failure) {
+        if (failure instanceof SearchCancelledException) {
+            metrics.searchTimedOut(supplier, nanos);
+        } else {
+            metrics.searchFailed(supplier, nanos);
+        }
+    }
+
+    private static Throwable unwrap(final Throwable failure) {
+        return failure instanceof CompletionException ? failure.getCause() : failure;
+    }
+
+    /**
+     * Fetch a further batch of a synchronous supplier's results on the search executor, polling for them if push is not
+     * available.
+     */
+    private CompletableFuture<List<Result>> searchPage(final ResultSupplier supplier, final String query, final QueryContext context, final int offset) {
+        return awaitPage(parallelSearch.searchPage(supplier, query, pageContext(context), offset, candidatesPerSupplier), context);
+    }
+
+    /**
+     * Fetch a further batch of an asynchronous supplier's results, polling for them if push is not available.
+     */
+    private CompletableFuture<List<Result>> searchPage(final AsyncResultSupplier supplier, final String query, final QueryContext context, final int offset) {
+        return awaitPage(supplier.search(query, pageContext(context), offset, candidatesPerSupplier), context);
+    }
+
+    private CompletableFuture<List<Result>> awaitPage(final CompletableFuture<List<Result>> page, final QueryContext context) {
+        runningAsyncSearches.add(page);
+        updatePolling();
+        page.whenComplete((results, failure) -> pushBatcher.submit(() -> {
+            if (!context.getToken().isCancelled()) {
+                asyncSearchDone(page);
+            }
+        }));
+        return page;
+    }
+
+    /**
+     * @return Context for fetching more results of the query, which got its own deadline
+     */
+    private QueryContext pageContext(final QueryContext context) {
+        return context.withDeadline(System.currentTimeMillis() + asyncTimeout);
+    }
+
+    /**
+     * Render the chunks of a streaming supplier as they arrive, ranked chunk by chunk. The next chunk is only requested
+     * once the previous one was rendered, and the subscription is cancelled along with the query. Like the first batch
+     * of other suppliers, at most {@code candidatesPerSupplier} results are shown: the best ranked ones of the chunk
+     * reaching that number, after which the subscription is cancelled and the search counts as completed.
+     */
+    private void streamResults(final StreamingResultSupplier supplier, final String query, final QueryContext context, final Runnable resultsShown) {
+        final CompletableFuture<Void> stream = new CompletableFuture<>();
+        runningAsyncSearches.add(stream);
+
+        final long searchStart = System.nanoTime();
+        final AtomicInteger resultCount = new AtomicInteger();
+        final AtomicBoolean finished = new AtomicBoolean(false);
+        final Span span = context.getSpan().child("search").attribute("supplier", supplier.getTitle());
+
+        supplier.stream(query, context.withSpan(span)).subscribe(new ResultSubscriber() {
+            private ResultSubscription subscription;
+
+            @Override
+            public void onSubscribe(final ResultSubscription subscription) {
+                this.subscription = subscription;
+                context.getToken().onCancel(() -> {
+                    subscription.cancel();
+                    if (finished.compareAndSet(false, true)) {
+                        metrics.searchCancelled(supplier.getTitle(), System.nanoTime() - searchStart);
+                        span.attribute("status", "cancelled").end();
+                    }
+                });
+                subscription.request(1);
+            }
+
             @Override
-            public void handleAction(Object sender, Object target) {
-                if (target != input) {
+            public void onNext(final List<Result> chunk) {
+                if (context.getToken().isCancelled() || finished.get()) {
                     return;
                 }
 
-                action.run();
+                // rank off the UI thread, only rendering needs the session lock
+                rank(query, chunk, span);
+                final int room = candidatesPerSupplier - resultCount.get();
+                final List<Result> shown = chunk.size() > room ? new ArrayList<>(chunk.subList(0, room)) : chunk;
+                final boolean full = resultCount.addAndGet(shown.size()) >= candidatesPerSupplier;
+
+                pushBatcher.submit(() -> {
+                    if (context.getToken().isCancelled()) {
+                        return;
+                    }
+                    final Span render = span.child("render").attribute("results", shown.size());
+                    resultList.appendToSection(supplier.getTitle(), shown);
+                    render.end();
+                    if (!shown.isEmpty()) {
+                        resultsShown.run();
+                    }
+                    if (!full) {
+                        subscription.request(1);
+                    }
+                }, span.child("push"));
+
+                if (full) {
+                    subscription.cancel();
+                    onComplete();
+                }
             }
-        };
+
+            @Override
+            public void onError(final Throwable failure) {
+                if (finished.compareAndSet(false, true)) {
+                    recordFailure(supplier.getTitle(), System.nanoTime() - searchStart, failure);
+                    span.attribute("status", "failed").error(failure).end();
+                }
+                pushBatcher.submit(() -> {
+                    if (context.getToken().isCancelled()) {
+                        return;
+                    }
+                    asyncSearchDone(stream);
+                    resultList.appendNotice(supplier.getTitle(), failure instanceof SearchCancelledException ? "Timed out" : "Search failed");
+                });
+            }
+
+            @Override
+            public void onComplete() {
+                if (finished.compareAndSet(false, true)) {
+                    metrics.searchCompleted(supplier.getTitle(), System.nanoTime() - searchStart, resultCount.get());
+                    span.attribute("results", resultCount.get()).end();
+                }
+                pushBatcher.submit(() -> {
+                    if (context.getToken().isCancelled()) {
+                        return;
+                    }
+                    asyncSearchDone(stream);
+                });
+            }
+        });
+    }
+
+    private void asyncSearchDone(final CompletableFuture<?> search) {
+        runningAsyncSearches.remove(search);
+        if (runningAsyncSearches.isEmpty()) {
+            resultList.hideLoadingIcon();
+            resultList.endUpdate();
+            updatePolling();
+            runningQuery.getSpan().end();
+        }
+    }
+
+    private void cancelRunningQuery() {
+        runningQuery.getToken().cancel();
+        runningQuery.getSpan().attribute("status", "cancelled").end();
+        runningAsyncSearches.forEach(search -> search.cancel(true));
+        runningAsyncSearches.clear();
+    }
+
+    /**
+     * Without push, poll only while asynchronous results are outstanding, so idle sessions cause no traffic.
+     */
+    private void updatePolling() {
+        final boolean needsPolling = !pushAvailable && !runningAsyncSearches.isEmpty();
+        if (needsPolling != polling) {
+            getUI().setPollInterval(needsPolling ? FALLBACK_POLL_INTERVAL : -1);
+            polling = needsPolling;
+        }
+    }
+
+    private static boolean enablePush(final UI ui) {
+        final PushConfiguration pushConfiguration = ui.getPushConfiguration();
+        if (pushConfiguration.getPushMode().isEnabled()) {
+            return true;
+        }
+
+        try {
+            // manual mode only pushes when asked to, so it does not change the behaviour of the rest of the UI
+            pushConfiguration.setPushMode(PushMode.MANUAL);
+            return true;
+        } catch (IllegalStateException e) {
+            // push support is not available on this server
+            return false;
+        }
+    }
+
+    private void changeResultListToReflectException() {
+        resultList.clear();
+        // TODO: Have to be more specific e.g. red etc.
+        resultList.appendResults("Command result", Lists.newArrayList(new Result("Voice Command failed.", () -> {
+        })));
     }
 
     private Component createSpeechButton() {
@@ -222,6 +666,7 @@ public class Periscope extends VerticalLayout {
 
         speechRecognizer.addSpeechResultListener(transcript -> {
             input.setValue(transcript);
+            queryDispatcher.bypass(transcript);
             this.consumeQuery(transcript, true);
 
             startStopButton.removeStyleName("recording");
@@ -243,4 +688,16 @@ public class Periscope extends VerticalLayout {
         speechWrapper.addStyleName("speech-recognition");
         return speechWrapper;
     }
+
+    /**
+     * Shared network, trained in the background so picking a result does not wait on a gradient step.
+     */
+    private static class SharedRanker {
+        private static final Ranker INSTANCE = new TrainingQueue(NeuralNetworkManager.getShared());
+
+        private static void registerGauges(final PeriscopeMetrics metrics) {
+            final NeuralNetworkManager network = NeuralNetworkManager.getShared();
+            metrics.registerGauge("rankingCacheHitPercent", () -> Math.round(network.getCacheHitRatio() * 100));
+        }
+    }
 }
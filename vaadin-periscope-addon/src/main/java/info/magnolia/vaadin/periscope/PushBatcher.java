@@ -0,0 +1,161 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope;
+
+import info.magnolia.vaadin.periscope.tracing.Span;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import com.vaadin.shared.communication.PushMode;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
+
+/**
+ * Delivers UI updates coming from background threads. Updates are run inside {@link UI#access(Runnable)}; all updates
+ * submitted within one frame are applied together and sent to the client with a single push.
+ * <p>
+ * Every batcher flushes on its own thread, started on demand and ended when idle, since updates such as a dispatched
+ * query may block while holding the session lock: a slow session must not hold up the updates of other ones.
+ */
+class PushBatcher {
+
+    private static final long FRAME_MILLIS = 16;
+    private static final long IDLE_SECONDS = 30;
+
+    private final ScheduledExecutorService flushScheduler = createFlushScheduler();
+    private final Supplier<UI> uiSupplier;
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final List<Span> applied = new ArrayList<>();
+
+    PushBatcher(final Supplier<UI> uiSupplier) {
+        this.uiSupplier = uiSupplier;
+    }
+
+    /**
+     * Queue an update to be applied with the next batch; may be called from any thread.
+     */
+    void submit(final Runnable update) {
+        pending.add(update);
+        if (flushScheduled.compareAndSet(false, true)) {
+            flushScheduler.schedule(this::flush, FRAME_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Queue an update traced by the given span, which ends once the update was pushed to the client.
+     */
+    void submit(final Runnable update, final Span span) {
+        if (!span.isRecording()) {
+            submit(update);
+            return;
+        }
+        submit(() -> {
+            update.run();
+            // only touched while holding the session lock
+            applied.add(span);
+        });
+    }
+
+    /**
+     * Drop all updates which were not applied yet, e.g. when the component is detached.
+     */
+    void discard() {
+        pending.clear();
+    }
+
+    private void flush() {
+        final UI ui = uiSupplier.get();
+        if (ui == null) {
+            pending.clear();
+            flushScheduled.set(false);
+            return;
+        }
+
+        try {
+            ui.access(() -> {
+                // updates submitted from here on need another flush
+                flushScheduled.set(false);
+
+                // one failing update must not drop the rest of the batch
+                RuntimeException failure = null;
+                Runnable update;
+                while ((update = pending.poll()) != null) {
+                    try {
+                        update.run();
+                    } catch (RuntimeException e) {
+                        if (failure == null) {
+                            failure = e;
+                        } else {
+                            failure.addSuppressed(e);
+                        }
+                    }
+                }
+
+                if (ui.getPushConfiguration().getPushMode() == PushMode.MANUAL) {
+                    ui.push();
+                }
+                applied.forEach(Span::end);
+                applied.clear();
+
+                if (failure != null) {
+                    // reported to the session's error handler
+                    throw failure;
+                }
+            });
+        } catch (UIDetachedException e) {
+            pending.clear();
+            flushScheduled.set(false);
+        }
+    }
+
+    private static ScheduledExecutorService createFlushScheduler() {
+        final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "periscope-push");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setKeepAliveTime(IDLE_SECONDS, TimeUnit.SECONDS);
+        scheduler.allowCoreThreadTimeOut(true);
+        return scheduler;
+    }
+}
@@ -37,12 +37,15 @@ package info.magnolia.vaadin.periscope;
 import info.magnolia.vaadin.periscope.result.Result;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.function.Consumer;
-import java.util.stream.StreamSupport;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 
@@ -54,18 +57,30 @@ import com.vaadin.v7.ui.Label;
 import com.vaadin.v7.ui.VerticalLayout;
 
 /**
- * Manager for periscope results, internally maintaining a Vaadin component.
+ * Manager for periscope results, internally maintaining a Vaadin component per result.
+ * <p>
+ * Besides sections matched by title, entries are matched by {@link Result#getId() result id}, so unchanged entries
+ * keep their components and only what changed is added, removed or moved on the client. Entries and "show more"
+ * controls get component ids as keys, by which the browser reports the selected one.
  */
-public class ResultList {
+public class ResultList extends ResultView {
+
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
 
     private final VerticalLayout layout;
     private final Component loadingIcon;
 
     private final Map<Component, Result> results = new HashMap<>();
+    private final Map<Component, Runnable> showMoreActions = new HashMap<>();
 
-    private final List<Consumer<Result>> resultPickCallbacks = new ArrayList<>();
+    private final Map<String, Section> sections = new LinkedHashMap<>();
+    private final Map<String, Section> staleSections = new HashMap<>();
+    private Section lastSection;
 
-    private int selectorPosition = -1;
+    private final String keyPrefix = "periscope-" + INSTANCES.incrementAndGet() + "-";
+    private final Map<String, Component> keyed = new HashMap<>();
+    private int nextKey = 0;
+    private Component selected;
 
     @Inject
     public ResultList() {
@@ -76,62 +91,214 @@ public class ResultList {
         loadingIcon.addStyleName("async-loading");
     }
 
+    @Override
     public Component getLayout() {
         return layout;
     }
 
-    void moveSelector(final int step) {
-        if (step == 0) {
+    @Override
+    Optional<Result> getSelectedOrFirstResult() {
+        if (selected != null) {
+            return Optional.ofNullable(results.get(selected));
+        }
+        if (layout.getComponentCount() < 2) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(results.get(layout.getComponent(1)));
+    }
+
+    @Override
+    boolean activateSelectedControl() {
+        final Runnable showMore = showMoreActions.get(selected);
+        if (showMore != null) {
+            showMore.run();
+        }
+        return showMore != null;
+    }
+
+    @Override
+    void select(final String key) {
+        selected = keyed.get(key);
+    }
+
+    @Override
+    void clearSelector() {
+        selected = null;
+    }
+
+    @Override
+    void beginUpdate() {
+        clearSelector();
+        sections.forEach((title, section) -> {
+            final Section stale = staleSections.put(title, section);
+            if (stale != null) {
+                removeSection(stale, Collections.emptySet());
+            }
+        });
+        sections.clear();
+        lastSection = null;
+    }
+
+    @Override
+    void endUpdate() {
+        staleSections.values().forEach(section -> removeSection(section, Collections.emptySet()));
+        staleSections.clear();
+    }
+
+    @Override
+    void appendResults(final String title, final List<Result> results) {
+        final Section existing = sections.get(title);
+        if (existing != null) {
+            appendEntries(existing, results, null);
             return;
         }
 
-        selectorPosition += step;
+        final Section stale = staleSections.remove(title);
+        if (results.isEmpty()) {
+            if (stale != null) {
+                removeSection(stale, Collections.emptySet());
+            }
+            return;
+        }
 
-        selectorPosition = Math.max(0, selectorPosition);
-        selectorPosition = Math.min(layout.getComponentCount() - 1, selectorPosition);
+        final Section section = startSection(title, stale);
+        section.showMore = stale != null ? stale.showMore : null;
+        appendEntries(section, results, stale);
+        if (section.showMore != null) {
+            place(section.showMore, layout.getComponentIndex(section.end) + 1);
+        }
 
-        // XXX: Ugly - exclusion of supplier headers
-        if (selectorPosition >= 0 && layout.getComponent(selectorPosition).getStyleName().contains("supplier-heading")) {
-            if (selectorPosition == 0) {
-                selectorPosition++;
-            } else if (selectorPosition == layout.getComponentCount() - 1) {
-                selectorPosition--;
-            } else {
-                selectorPosition += step > 0 ? 1 : -1;
+        if (stale != null) {
+            removeSection(stale, section.components());
+        }
+    }
+
+    @Override
+    void appendToSection(final String title, final List<Result> results) {
+        final Section section = sections.get(title);
+        if (section == null) {
+            appendResults(title, results);
+            return;
+        }
+        appendEntries(section, results, null);
+    }
+
+    @Override
+    void showShowMore(final String title, final Runnable showMore) {
+        final Section section = sections.get(title);
+        if (section == null) {
+            return;
+        }
+
+        if (section.showMore == null) {
+            final HorizontalLayout control = new HorizontalLayout(new Label("Show more"));
+            control.setStyleName("show-more");
+            assignKey(control);
+            control.addLayoutClickListener((LayoutEvents.LayoutClickListener) event -> showMoreActions.get(control).run());
+            section.showMore = control;
+        }
+        showMoreActions.put(section.showMore, showMore);
+        place(section.showMore, layout.getComponentIndex(section.end) + 1);
+    }
+
+    @Override
+    void hideShowMore(final String title) {
+        final Section section = sections.get(title);
+        if (section != null && section.showMore != null) {
+            remove(section.showMore);
+            section.showMore = null;
+        }
+    }
+
+    @Override
+    void appendNotice(final String title, final String notice) {
+        Section section = sections.get(title);
+        if (section == null) {
+            final Section stale = staleSections.remove(title);
+            section = startSection(title, stale);
+            if (stale != null && stale.notice != null && notice.equals(stale.notice.getValue())) {
+                section.notice = stale.notice;
+            }
+            if (stale != null) {
+                removeSection(stale, Collections.singleton(section.notice));
             }
         }
 
-        clearSelector();
-        if (selectorPosition >= 0) {
-            layout.getComponent(selectorPosition).addStyleName("selected");
+        if (section.notice == null) {
+            section.notice = new Label(notice);
+            section.notice.setStyleName("supplier-notice");
         }
+        place(section.notice, layout.getComponentIndex(section.end) + 1);
+        section.end = section.notice;
     }
 
-    Optional<Result> getSelectedOrFirstResult() {
-        if (layout.getComponentCount() == 0) {
-            return Optional.empty();
+    /**
+     * Start a new section after the last one of the current query, reusing the heading of the stale one if given.
+     */
+    private Section startSection(final String title, final Section stale) {
+        final int index = lastSection == null ? 0 : layout.getComponentIndex(lastSection.tail()) + 1;
+        final Section section = new Section(stale != null ? stale.heading : createHeading(title));
+        place(section.heading, index);
+        sections.put(title, section);
+        lastSection = section;
+        return section;
+    }
+
+    /**
+     * Append results after the end of a section, reusing the entries of the same ids in the stale section if given.
+     */
+    private void appendEntries(final Section section, final List<Result> results, final Section stale) {
+        final Map<String, Component> reusable = new HashMap<>();
+        if (stale != null) {
+            stale.entries.forEach(entry -> reusable.putIfAbsent(this.results.get(entry).getId(), entry));
         }
 
-        // XXX: A bit hacky
-        final Component selectedOrFirst = StreamSupport.stream(layout.spliterator(), false)
-                .filter(component -> component.getStyleName().contains("selected"))
-                .findFirst().orElse(layout.getComponent(1));
-        return Optional.of(results.get(selectedOrFirst));
+        int index = layout.getComponentIndex(section.end);
+        for (Result result : results) {
+            Component entry = result.getId() != null ? reusable.remove(result.getId()) : null;
+            if (entry == null) {
+                entry = createResultEntry(result);
+            } else {
+                updateResultEntry(entry, result);
+            }
+            place(entry, ++index);
+            section.entries.add(entry);
+            section.end = entry;
+        }
     }
 
-    void clearSelector() {
-        layout.forEach(component -> component.removeStyleName("selected"));
+    /**
+     * Move a component to the given index, or add it there, unless it is there already. Components of the current
+     * query always precede the stale ones, so components are only ever moved towards the top.
+     */
+    private void place(final Component component, final int index) {
+        if (layout.getComponentIndex(component) != index) {
+            layout.addComponent(component, index);
+        }
     }
 
-    void appendResults(final String title, final List<Result> results) {
-        if (results.isEmpty()) {
-            return;
+    private void removeSection(final Section section, final Set<Component> kept) {
+        section.components().stream()
+                .filter(component -> !kept.contains(component))
+                .forEach(this::remove);
+    }
+
+    private void remove(final Component component) {
+        layout.removeComponent(component);
+        results.remove(component);
+        showMoreActions.remove(component);
+        keyed.remove(component.getId());
+        if (component == selected) {
+            selected = null;
         }
+    }
 
-        layout.addComponent(createHeading(title));
-        results.stream()
-                .map(this::createResultEntry)
-                .forEach(layout::addComponent);
+    /**
+     * Give a selectable component an id unique within the page, by which the browser reports it as selected.
+     */
+    private void assignKey(final Component component) {
+        component.setId(keyPrefix + nextKey++);
+        keyed.put(component.getId(), component);
     }
 
     private Component createHeading(final String name) {
@@ -142,32 +309,93 @@ public class ResultList {
 
     private Component createResultEntry(final Result result) {
         final Label icon = new Label();
-        icon.setStyleName("icon " + result.getIcon().orElse(""));
+        icon.setStyleName(getIconStyle(result));
         final Label text = new Label(result.getHtmlText(), ContentMode.HTML);
 
         final HorizontalLayout entry = new HorizontalLayout(icon, text);
         entry.setStyleName("result-entry");
+        assignKey(entry);
         results.put(entry, result);
         entry.addLayoutClickListener((LayoutEvents.LayoutClickListener) event -> {
-            resultPickCallbacks.forEach(pickCallback -> pickCallback.accept(result));
+            resultPicked(results.get(entry));
         });
         return entry;
     }
 
+    /**
+     * Point an entry to the result of the same id of a new query, only touching what changed, e.g. the highlighting.
+     */
+    private void updateResultEntry(final Component entry, final Result result) {
+        final HorizontalLayout entryLayout = (HorizontalLayout) entry;
+        final Label icon = (Label) entryLayout.getComponent(0);
+        final String iconStyle = getIconStyle(result);
+        if (!iconStyle.trim().equals(icon.getStyleName())) {
+            icon.setStyleName(iconStyle);
+        }
+        final Label text = (Label) entryLayout.getComponent(1);
+        if (!result.getHtmlText().equals(text.getValue())) {
+            text.setValue(result.getHtmlText());
+        }
+        results.put(entry, result);
+    }
+
+    private static String getIconStyle(final Result result) {
+        return "icon " + result.getIcon().orElse("");
+    }
+
+    @Override
     void clear() {
         layout.removeAllComponents();
         results.clear();
+        showMoreActions.clear();
+        keyed.clear();
+        selected = null;
+        sections.clear();
+        staleSections.clear();
+        lastSection = null;
     }
 
+    @Override
     void showLoadingIcon() {
         layout.addComponent(loadingIcon);
     }
 
+    @Override
     void hideLoadingIcon() {
         layout.removeComponent(loadingIcon);
     }
 
-    void onResultPick(final Consumer<Result> pickCallback) {
-        this.resultPickCallbacks.add(pickCallback);
+    /**
+     * Components of the results of one supplier, from the heading to the end of the section.
+     */
+    private static class Section {
+
+        private final Component heading;
+        private final List<Component> entries = new ArrayList<>();
+        private Label notice;
+        private Component showMore;
+        private Component end;
+
+        private Section(final Component heading) {
+            this.heading = heading;
+            this.end = heading;
+        }
+
+        private Component tail() {
+            return showMore != null ? showMore : end;
+        }
+
+        private Set<Component> components() {
+            final Set<Component> components = Collections.newSetFromMap(new IdentityHashMap<>());
+            components.add(heading);
+            components.addAll(entries);
+            if (notice != null) {
+                components.add(notice);
+            }
+            if (showMore != null) {
+                components.add(showMore);
+            }
+            return components;
+        }
     }
 }
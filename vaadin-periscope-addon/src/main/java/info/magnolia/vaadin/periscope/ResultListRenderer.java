@@ -0,0 +1,103 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope;
+
+import java.util.function.IntConsumer;
+
+import com.vaadin.annotations.JavaScript;
+import com.vaadin.ui.AbstractJavaScriptComponent;
+import com.vaadin.ui.JavaScriptFunction;
+
+import elemental.json.JsonArray;
+
+/**
+ * Component rendering the sections of a {@link ClientResultList} in the browser. Sections are addressed by their
+ * index in display order, and entries and "show more" controls by keys assigned on the server.
+ * <p>
+ * Sections are sent as function calls rather than shared state, so only what changed goes over the wire. These calls
+ * are not replayed when the browser side is created anew, e.g. on re-attach or reload of a {@code @PreserveOnRefresh}
+ * UI; it reports that it starts out empty, so the owner can send everything again.
+ */
+@JavaScript("resultlistrenderer_connector.js")
+class ResultListRenderer extends AbstractJavaScriptComponent {
+
+    /**
+     * @param readyListener Called whenever the browser side was created and is empty, to send all sections again
+     */
+    ResultListRenderer(final IntConsumer clickListener, final Runnable readyListener) {
+        this.addFunction("clicked", (JavaScriptFunction) arguments -> clickListener.accept((int) arguments.getNumber(0)));
+        this.addFunction("ready", (JavaScriptFunction) arguments -> readyListener.run());
+    }
+
+    void startSection(final int index, final String title) {
+        this.callFunction("startSection", index, title);
+    }
+
+    void removeSection(final int index) {
+        this.callFunction("removeSection", index);
+    }
+
+    /**
+     * Remove all sections from the given index on.
+     */
+    void truncate(final int count) {
+        this.callFunction("truncate", count);
+    }
+
+    /**
+     * @param entries Arrays of key, text, icon and match offsets of each entry; without match offsets, the text is HTML
+     */
+    void appendEntries(final int index, final JsonArray entries) {
+        this.callFunction("appendEntries", index, entries);
+    }
+
+    void setNotice(final int index, final String notice) {
+        this.callFunction("setNotice", index, notice);
+    }
+
+    /**
+     * @param key Key of the control, or a negative one to hide it
+     */
+    void setShowMore(final int index, final int key) {
+        this.callFunction("setShowMore", index, key);
+    }
+
+    void setLoading(final boolean loading) {
+        this.callFunction("setLoading", loading);
+    }
+
+    void clear() {
+        this.callFunction("clear");
+    }
+}
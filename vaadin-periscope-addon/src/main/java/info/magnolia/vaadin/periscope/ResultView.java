@@ -0,0 +1,121 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope;
+
+import info.magnolia.vaadin.periscope.result.Result;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import com.vaadin.ui.Component;
+
+/**
+ * Renderer of periscope results, grouped into one section per supplier. A new query's results are reconciled against
+ * the ones shown: between {@link #beginUpdate()} and {@link #endUpdate()}, sections are matched by title, and the
+ * sections of the previous query stay until they are replaced or the update ends.
+ *
+ * @see ResultList
+ * @see ClientResultList
+ */
+public abstract class ResultView {
+
+    private final List<Consumer<Result>> resultPickCallbacks = new ArrayList<>();
+
+    /**
+     * @return Vaadin component showing the results
+     */
+    public abstract Component getLayout();
+
+    abstract Optional<Result> getSelectedOrFirstResult();
+
+    /**
+     * Run the "show more" control if it is selected, e.g. when Enter is pressed.
+     *
+     * @return Whether a control was selected
+     */
+    abstract boolean activateSelectedControl();
+
+    /**
+     * Select the entry or "show more" control of the given key, as reported by the browser, which keeps track of the
+     * selection itself. Unknown keys, e.g. of entries removed meanwhile, clear the selection.
+     */
+    abstract void select(String key);
+
+    abstract void clearSelector();
+
+    /**
+     * Start showing the results of a new query. Sections shown so far stay until they are replaced by the section of
+     * the same title, or until {@link #endUpdate()}.
+     */
+    abstract void beginUpdate();
+
+    /**
+     * Remove the sections of the previous query which were not replaced, e.g. of suppliers without results.
+     */
+    abstract void endUpdate();
+
+    abstract void appendResults(String title, List<Result> results);
+
+    /**
+     * Append results to the end of the section with the given title, e.g. a further chunk of a streaming supplier,
+     * starting the section if there is none yet.
+     */
+    abstract void appendToSection(String title, List<Result> results);
+
+    /**
+     * Show a "show more" control at the end of the section with the given title, or update the action of the one
+     * shown already.
+     */
+    abstract void showShowMore(String title, Runnable showMore);
+
+    abstract void hideShowMore(String title);
+
+    abstract void appendNotice(String title, String notice);
+
+    abstract void clear();
+
+    abstract void showLoadingIcon();
+
+    abstract void hideLoadingIcon();
+
+    void onResultPick(final Consumer<Result> pickCallback) {
+        this.resultPickCallbacks.add(pickCallback);
+    }
+
+    void resultPicked(final Result result) {
+        resultPickCallbacks.forEach(pickCallback -> pickCallback.accept(result));
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope;
+
+import info.magnolia.vaadin.periscope.result.Result;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Shows the results of one supplier a page at a time, behind a "show more" control. Candidates are fetched from the
+ * supplier in larger batches and ranked as a whole, so the best ranked ones come first; the next batch is only
+ * fetched once the user asked for more than the ranked candidates left.
+ */
+class SectionPager {
+
+    private final String title;
+    private final ResultView resultList;
+    private final int pageSize;
+    private final int batchSize;
+    private final IntFunction<CompletableFuture<List<Result>>> batchLoader;
+    private final Consumer<List<Result>> ranking;
+    private final Consumer<Runnable> rendering;
+
+    private final Deque<Result> candidates = new ArrayDeque<>();
+    private int nextOffset = 0;
+    private boolean exhausted = false;
+    private boolean loading = false;
+
+    /**
+     * @param batchLoader Fetches the batch of candidates at the given offset, at most {@code batchSize} of them
+     * @param ranking Ranks a batch in place, on whichever thread fetched it
+     * @param rendering Runs UI updates once a batch was fetched, e.g. through server push
+     */
+    SectionPager(final String title, final ResultView resultList, final int pageSize, final int batchSize,
+                 final IntFunction<CompletableFuture<List<Result>>> batchLoader, final Consumer<List<Result>> ranking,
+                 final Consumer<Runnable> rendering) {
+        this.title = title;
+        this.resultList = resultList;
+        this.pageSize = pageSize;
+        this.batchSize = batchSize;
+        this.batchLoader = batchLoader;
+        this.ranking = ranking;
+        this.rendering = rendering;
+    }
+
+    /**
+     * Show the first page of an already ranked first batch.
+     */
+    void start(final List<Result> rankedBatch) {
+        addBatch(rankedBatch);
+        showPage();
+    }
+
+    /**
+     * Show the next page, fetching the next batch first if needed.
+     */
+    void showMore() {
+        if (loading) {
+            return;
+        }
+        if (candidates.size() >= pageSize || exhausted) {
+            showPage();
+            return;
+        }
+
+        loading = true;
+        batchLoader.apply(nextOffset).whenComplete((batch, failure) -> {
+            if (failure == null) {
+                ranking.accept(batch);
+            }
+            rendering.accept(() -> {
+                loading = false;
+                if (failure == null) {
+                    addBatch(batch);
+                } else {
+                    // keep what was shown, but do not offer more
+                    exhausted = true;
+                }
+                showPage();
+            });
+        });
+    }
+
+    private void addBatch(final List<Result> batch) {
+        candidates.addAll(batch);
+        nextOffset += batch.size();
+        exhausted = batch.size() < batchSize;
+    }
+
+    private void showPage() {
+        final List<Result> page = new ArrayList<>(pageSize);
+        while (page.size() < pageSize && !candidates.isEmpty()) {
+            page.add(candidates.poll());
+        }
+        resultList.appendToSection(title, page);
+
+        if (candidates.isEmpty() && exhausted) {
+            resultList.hideShowMore(title);
+        } else {
+            resultList.showShowMore(title, this::showMore);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * Metrics exported as MBeans in the {@value #DOMAIN} domain: one {@link LatencyStatsMBean} per supplier and per stage,
+ * registered on first use, and one {@link GaugeMBean} per registered gauge. Meant to be shared by all periscopes of an
+ * application; MBeans of another instance under the same names are replaced.
+ */
+public class JmxMetrics implements PeriscopeMetrics {
+
+    public static final String DOMAIN = "info.magnolia.vaadin.periscope";
+
+    private final MBeanServer server;
+    private final Map<String, LatencyStats> suppliers = new ConcurrentHashMap<>();
+    private final Map<Stage, LatencyStats> stages = new EnumMap<>(Stage.class);
+    private final Set<ObjectName> registered = ConcurrentHashMap.newKeySet();
+
+    public JmxMetrics() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public JmxMetrics(final MBeanServer server) {
+        this.server = server;
+        for (Stage stage : Stage.values()) {
+            final LatencyStats stats = new LatencyStats();
+            stages.put(stage, stats);
+            register(name("Stage", stage.name()), new StandardMBean(stats, LatencyStatsMBean.class, false));
+        }
+    }
+
+    @Override
+    public void searchCompleted(final String supplier, final long nanos, final int results) {
+        stats(supplier).completed(nanos, results);
+    }
+
+    @Override
+    public void searchTimedOut(final String supplier, final long nanos) {
+        stats(supplier).timedOut(nanos);
+    }
+
+    @Override
+    public void searchFailed(final String supplier, final long nanos) {
+        stats(supplier).failed(nanos);
+    }
+
+    @Override
+    public void searchCancelled(final String supplier, final long nanos) {
+        stats(supplier).cancelled(nanos);
+    }
+
+    @Override
+    public void stageCompleted(final Stage stage, final long nanos) {
+        stages.get(stage).recorded(nanos);
+    }
+
+    @Override
+    public void registerGauge(final String name, final LongSupplier value) {
+        final GaugeMBean gauge = value::getAsLong;
+        register(name("Gauge", name), new StandardMBean(gauge, GaugeMBean.class, false));
+    }
+
+    /**
+     * @return Stats of the given supplier, e.g. to report on them other than through JMX
+     */
+    public LatencyStatsMBean getSupplierStats(final String supplier) {
+        return stats(supplier);
+    }
+
+    public LatencyStatsMBean getStageStats(final Stage stage) {
+        return stages.get(stage);
+    }
+
+    /**
+     * Remove all MBeans of this instance, e.g. when the application is undeployed.
+     */
+    public void unregister() {
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                // already gone
+            }
+        }
+        registered.clear();
+    }
+
+    private LatencyStats stats(final String supplier) {
+        return suppliers.computeIfAbsent(supplier, title -> {
+            final LatencyStats stats = new LatencyStats();
+            register(name("Supplier", title), new StandardMBean(stats, LatencyStatsMBean.class, false));
+            return stats;
+        });
+    }
+
+    private void register(final ObjectName name, final StandardMBean mbean) {
+        try {
+            try {
+                server.registerMBean(mbean, name);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(name);
+                server.registerMBean(mbean, name);
+            }
+            registered.add(name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register MBean " + name, e);
+        }
+    }
+
+    private static ObjectName name(final String type, final String name) {
+        try {
+            return new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException("Invalid MBean name: " + name, e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package info.magnolia.vaadin.periscope.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies in microseconds, with logarithmic buckets of eight linear sub-buckets each, so
+ * percentiles are accurate to 12.5% over any range of values.
+ */
+class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(final long nanos) {
+        final long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+        counts.incrementAndGet(bucket(micros));
+        count.increment();
+        sum.add(micros);
+        max.accumulateAndGet(micros, Math::max);
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    double getMeanMicros() {
+        final long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    long getMaxMicros() {
+        return max.get();
+    }
+
+    /**
+     * @param quantile Between 0 and 1, e.g. 0.99 for the 99th percentile
+     * @return Upper bound of the bucket holding the given quantile, or zero if nothing was recorded
+     */
+    long getPercentileMicros(final double quantile) {
+        final long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    static int bucket(final long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(micros);
+        final int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBound(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        final long lower = (long) (SUB_BUCKETS + (bucket - SUB_BUCKETS) % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
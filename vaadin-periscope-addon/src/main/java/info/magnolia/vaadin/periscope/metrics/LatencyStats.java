@@ -0,0 +1,102 @@
+package info.magnolia.vaadin.periscope.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcome counters of one supplier or stage.
+ */
+class LatencyStats implements LatencyStatsMBean {
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder results = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder cancellations = new LongAdder();
+
+    void completed(final long nanos, final int resultCount) {
+        latencies.record(nanos);
+        completed.increment();
+        results.add(resultCount);
+    }
+
+    void timedOut(final long nanos) {
+        latencies.record(nanos);
+        timeouts.increment();
+    }
+
+    void failed(final long nanos) {
+        latencies.record(nanos);
+        failures.increment();
+    }
+
+    void cancelled(final long nanos) {
+        latencies.record(nanos);
+        cancellations.increment();
+    }
+
+    void recorded(final long nanos) {
+        latencies.record(nanos);
+    }
+
+    @Override
+    public long getCount() {
+        return latencies.getCount();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public long getCancellations() {
+        return cancellations.sum();
+    }
+
+    @Override
+    public double getMeanResults() {
+        final long searches = completed.sum();
+        return searches == 0 ? 0 : (double) results.sum() / searches;
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latencies.getMeanMicros() / 1000;
+    }
+
+    @Override
+    public double getMedianMillis() {
+        return latencies.getPercentileMicros(0.5) / 1000.0;
+    }
+
+    @Override
+    public double get90thPercentileMillis() {
+        return latencies.getPercentileMicros(0.9) / 1000.0;
+    }
+
+    @Override
+    public double get99thPercentileMillis() {
+        return latencies.getPercentileMicros(0.99) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latencies.getMaxMicros() / 1000.0;
+    }
+
+    @Override
+    public void reset() {
+        latencies.reset();
+        completed.reset();
+        results.reset();
+        timeouts.reset();
+        failures.reset();
+        cancellations.reset();
+    }
+}
@@ -0,0 +1,38 @@
+package info.magnolia.vaadin.periscope.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Default metrics, discarding all measurements.
+ */
+final class NoopMetrics implements PeriscopeMetrics {
+
+    static final NoopMetrics INSTANCE = new NoopMetrics();
+
+    private NoopMetrics() {
+    }
+
+    @Override
+    public void searchCompleted(final String supplier, final long nanos, final int results) {
+    }
+
+    @Override
+    public void searchTimedOut(final String supplier, final long nanos) {
+    }
+
+    @Override
+    public void searchFailed(final String supplier, final long nanos) {
+    }
+
+    @Override
+    public void searchCancelled(final String supplier, final long nanos) {
+    }
+
+    @Override
+    public void stageCompleted(final Stage stage, final long nanos) {
+    }
+
+    @Override
+    public void registerGauge(final String name, final LongSupplier value) {
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Receiver of measurements of periscope searches: latencies and outcomes per supplier, and latencies of the stages of a
+ * query. Implementations are shared by all periscopes of an application, so they have to be thread-safe and cheap.
+ *
+ * @see #noop()
+ * @see JmxMetrics
+ */
+public interface PeriscopeMetrics {
+
+    /**
+     * Stages of handling a query, besides searching the suppliers.
+     */
+    enum Stage {
+        /**
+         * From receiving a query until the results of all synchronous suppliers are shown.
+         */
+        SYNC_RESULTS,
+        /**
+         * Ranking one batch of results.
+         */
+        RANKING,
+        /**
+         * From receiving a query until the first results are shown.
+         */
+        FIRST_RENDER
+    }
+
+    /**
+     * @param results Number of results delivered
+     */
+    void searchCompleted(String supplier, long nanos, int results);
+
+    void searchTimedOut(String supplier, long nanos);
+
+    void searchFailed(String supplier, long nanos);
+
+    /**
+     * A search was cancelled before it completed, e.g. by the user typing on.
+     */
+    void searchCancelled(String supplier, long nanos);
+
+    void stageCompleted(Stage stage, long nanos);
+
+    /**
+     * Expose a value sampled on demand, e.g. {@link info.magnolia.vaadin.periscope.order.TrainingQueue#getDroppedPicks()}.
+     */
+    void registerGauge(String name, LongSupplier value);
+
+    /**
+     * @return Metrics discarding all measurements
+     */
+    static PeriscopeMetrics noop() {
+        return NoopMetrics.INSTANCE;
+    }
+}
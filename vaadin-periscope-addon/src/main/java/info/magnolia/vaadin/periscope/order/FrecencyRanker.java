@@ -0,0 +1,132 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.order;
+
+import info.magnolia.vaadin.periscope.result.Result;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Ranks results by frecency: how often and how recently they were picked, regardless of the query. Every pick adds
+ * one to a result's score, and scores decay exponentially with the configured half-life.
+ * <p>
+ * The score of a result is kept as the single point in time at which it will have decayed to one, so a pick is one
+ * lock-free compare-and-set on a primitive table. The table has a fixed size and is addressed by hashed result ids,
+ * so memory does not depend on the number of results.
+ */
+public class FrecencyRanker implements Ranker {
+
+    private static final int DEFAULT_TABLE_BITS = 16;
+    private static final long DEFAULT_HALF_LIFE = TimeUnit.DAYS.toMillis(7);
+    private static final long NEVER_PICKED = Double.doubleToRawLongBits(Double.NEGATIVE_INFINITY);
+
+    private final AtomicLongArray table;
+    private final int tableBits;
+    private final double decayRate;
+    private final LongSupplier clock;
+
+    public FrecencyRanker() {
+        this(DEFAULT_HALF_LIFE);
+    }
+
+    /**
+     * @param halfLife Time in milliseconds after which the weight of a pick halves
+     */
+    public FrecencyRanker(final long halfLife) {
+        this(halfLife, DEFAULT_TABLE_BITS, System::currentTimeMillis);
+    }
+
+    FrecencyRanker(final long halfLife, final int tableBits, final LongSupplier clock) {
+        this.tableBits = tableBits;
+        this.decayRate = Math.log(2) / (halfLife / 1000d);
+        this.clock = clock;
+        this.table = new AtomicLongArray(HashedCounters.ROWS << tableBits);
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, NEVER_PICKED);
+        }
+    }
+
+    @Override
+    public void train(final String query, final Result result) {
+        final double now = now();
+        final long key = HashedCounters.key(result.getId());
+        for (int row = 0; row < HashedCounters.ROWS; row++) {
+            final int index = HashedCounters.index(key, row, tableBits);
+            long current;
+            long updated;
+            do {
+                current = table.get(index);
+                updated = Double.doubleToRawLongBits(addPick(Double.longBitsToDouble(current), now));
+            } while (!table.compareAndSet(index, current, updated));
+        }
+    }
+
+    /**
+     * @return Natural logarithm of each candidate's frecency, or negative infinity if it was never picked
+     */
+    @Override
+    public float[] score(final String query, final List<Result> candidates) {
+        final double now = now();
+        final float[] scores = new float[candidates.size()];
+        for (int i = 0; i < scores.length; i++) {
+            final String id = candidates.get(i).getId();
+            final long key = HashedCounters.key(id);
+
+            // collisions only ever raise a score, so the lowest row is the most accurate
+            double unitTime = Double.POSITIVE_INFINITY;
+            for (int row = 0; row < HashedCounters.ROWS; row++) {
+                unitTime = Math.min(unitTime, Double.longBitsToDouble(table.get(HashedCounters.index(key, row, tableBits))));
+            }
+            scores[i] = (float) (decayRate * (unitTime - now));
+        }
+        return scores;
+    }
+
+    /**
+     * Add one to a score given as the time at which it decays to one: {@code t' = now + ln(e^(rate * (t - now)) + 1) / rate},
+     * computed without overflow.
+     */
+    private double addPick(final double unitTime, final double now) {
+        final double logScore = decayRate * (unitTime - now);
+        final double logSum = logScore > 0 ? logScore + Math.log1p(Math.exp(-logScore)) : Math.log1p(Math.exp(logScore));
+        return now + logSum / decayRate;
+    }
+
+    private double now() {
+        return clock.getAsLong() / 1000d;
+    }
+}
@@ -0,0 +1,75 @@
+package info.magnolia.vaadin.periscope.order;
+
+/**
+ * Hashing for the fixed-size counter tables of the lightweight rankers. Keys are spread over a few independent rows
+ * (as in a count-min sketch), so a collision in one row is compensated by the others.
+ */
+final class HashedCounters {
+
+    static final int ROWS = 2;
+
+    private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL};
+
+    private HashedCounters() {
+    }
+
+    /**
+     * @return Index of the key's counter in the given row of a table with {@code 2^bits} counters per row
+     */
+    static int index(final long key, final int row, final int bits) {
+        long hash = (key ^ SEEDS[row]) * 0xBF58476D1CE4E5B9L;
+        hash ^= hash >>> 31;
+        hash *= 0x94D049BB133111EBL;
+        hash ^= hash >>> 29;
+        return (row << bits) | (int) (hash >>> (64 - bits));
+    }
+
+    /**
+     * @return Key of a string from two independent hashes, its {@link String#hashCode()} and {@link #utf8Hash}, so
+     * strings sharing a hash code still get distinct counters
+     */
+    static long key(final String value) {
+        return key(value.hashCode(), utf8Hash(value));
+    }
+
+    /**
+     * @return Key combining a hash code with the {@link #key(String) key} of a string, e.g. of a query prefix and a
+     * result id, so ids sharing a hash code still get distinct counters under the same prefix
+     */
+    static long key(final int hash, final long key) {
+        return key * 0xBF58476D1CE4E5B9L + hash;
+    }
+
+    /**
+     * @return 32-bit FNV-1a hash of the UTF-8 encoding of the given string, computed without encoding it into a buffer
+     */
+    static int utf8Hash(final String value) {
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < value.length(); i++) {
+            int codePoint = value.charAt(i);
+            if (Character.isHighSurrogate((char) codePoint) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                codePoint = Character.toCodePoint((char) codePoint, value.charAt(++i));
+            } else if (Character.isSurrogate((char) codePoint)) {
+                // unpaired surrogates encode as '?', like String#getBytes does
+                codePoint = '?';
+            }
+
+            if (codePoint < 0x80) {
+                hash = (hash ^ codePoint) * 0x01000193;
+            } else if (codePoint < 0x800) {
+                hash = (hash ^ (0xC0 | codePoint >> 6)) * 0x01000193;
+                hash = (hash ^ (0x80 | codePoint & 0x3F)) * 0x01000193;
+            } else if (codePoint < 0x10000) {
+                hash = (hash ^ (0xE0 | codePoint >> 12)) * 0x01000193;
+                hash = (hash ^ (0x80 | codePoint >> 6 & 0x3F)) * 0x01000193;
+                hash = (hash ^ (0x80 | codePoint & 0x3F)) * 0x01000193;
+            } else {
+                hash = (hash ^ (0xF0 | codePoint >> 18)) * 0x01000193;
+                hash = (hash ^ (0x80 | codePoint >> 12 & 0x3F)) * 0x01000193;
+                hash = (hash ^ (0x80 | codePoint >> 6 & 0x3F)) * 0x01000193;
+                hash = (hash ^ (0x80 | codePoint & 0x3F)) * 0x01000193;
+            }
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,101 @@
+package info.magnolia.vaadin.periscope.order;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU of network outputs by query, valid for one model version. Concurrent requests for the same query share
+ * a single computation, so a query is run through the network once no matter how many suppliers rank results for it,
+ * and going back to a recent query (e.g. by backspacing) does not recompute it.
+ */
+final class InferenceCache<T> {
+
+    private final Map<String, Entry<T>> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    InferenceCache(final int capacity) {
+        this.entries = new LinkedHashMap<String, Entry<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry<T>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @param version Model version the output must stem from; outputs of other versions are recomputed
+     */
+    T get(final String query, final long version, final Function<String, T> compute) {
+        final Entry<T> entry;
+        final boolean owner;
+        synchronized (entries) {
+            final Entry<T> existing = entries.get(query);
+            if (existing != null && existing.version == version) {
+                entry = existing;
+                owner = false;
+            } else {
+                entry = new Entry<>(version);
+                entries.put(query, entry);
+                owner = true;
+            }
+        }
+
+        if (!owner) {
+            hits.increment();
+            return join(entry);
+        }
+
+        misses.increment();
+        try {
+            final T output = compute.apply(query);
+            entry.output.complete(output);
+            return output;
+        } catch (RuntimeException e) {
+            synchronized (entries) {
+                entries.remove(query, entry);
+            }
+            entry.output.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    private static <T> T join(final Entry<T> entry) {
+        try {
+            return entry.output.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for ranking inference", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        }
+    }
+
+    private static class Entry<T> {
+        private final long version;
+        private final CompletableFuture<T> output = new CompletableFuture<>();
+
+        private Entry(final long version) {
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package info.magnolia.vaadin.periscope.order;
+
+/**
+ * Copy of everything {@link NeuralNetworkManager} learned: the flattened network parameters and the result id of each
+ * output slot with its pick count.
+ */
+final class NetworkSnapshot {
+
+    private final int outputs;
+    private final String[] ids;
+    private final int[] picks;
+    private final float[] params;
+
+    NetworkSnapshot(final int outputs, final String[] ids, final int[] picks, final float[] params) {
+        this.outputs = outputs;
+        this.ids = ids;
+        this.picks = picks;
+        this.params = params;
+    }
+
+    int getOutputs() {
+        return outputs;
+    }
+
+    String[] getIds() {
+        return ids;
+    }
+
+    int[] getPicks() {
+        return picks;
+    }
+
+    float[] getParams() {
+        return params;
+    }
+}
@@ -2,13 +2,19 @@ package info.magnolia.vaadin.periscope.order;
 
 import info.magnolia.vaadin.periscope.result.Result;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.IntStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-import org.apache.commons.lang3.StringUtils;
+import org.deeplearning4j.nn.api.Layer;
 import org.deeplearning4j.nn.api.OptimizationAlgorithm;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
@@ -21,23 +27,80 @@ import org.deeplearning4j.nn.weights.WeightInit;
 import org.nd4j.linalg.activations.Activation;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.cpu.nativecpu.NDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
 import org.nd4j.linalg.learning.config.Nesterovs;
 
-public class NeuralNetworkManager {
+/**
+ * Orders results using a neural network which learns from the results users pick for their queries.
+ * <p>
+ * Instances are thread-safe and meant to be shared by all {@code Periscope}s of an application (see
+ * {@link #getShared()}). Training is serialized on a single network, while inference runs concurrently on a small pool
+ * of replicas (at most one per processor), which pick up the trained parameters lazily.
+ * <p>
+ * Every known result id owns a slot of the output layer. The layer starts small and grows with the number of ids,
+ * keeping trained weights, up to a maximum; beyond that, slots of rarely picked ids are reused (see
+ * {@link ResultVocabulary}).
+ */
+public class NeuralNetworkManager implements Ranker {
 
-    private final MultiLayerNetwork network;
+    private static final int OUTPUT_LAYER = 3;
+    private static final int INITIAL_OUTPUTS = 256;
+    private static final int DEFAULT_MAX_OUTPUTS = 10000;
 
-    private static final int ASCII_CHARS = 128;
-    private static final int INPUT_DIGITS = 20;
-    private static final int INPUT_CHANNELS = INPUT_DIGITS * ASCII_CHARS;
+    public static final String SNAPSHOT_PROPERTY = "periscope.ranking.snapshot";
+    private static final long SNAPSHOT_PERIOD_MINUTES = 5;
 
-    private final OutputLayer outputLayer;
-    private final List<String> resultIds = new ArrayList<>();
+    private static final int MAX_REPLICAS = Runtime.getRuntime().availableProcessors();
+    private static final int CACHED_QUERIES = 64;
+    private static final int MAX_PICK_REPEATS = 8;
+
+    private static final ThreadLocal<int[]> ENCODING_BUFFER = ThreadLocal.withInitial(() -> new int[QueryEncoding.INPUT_DIGITS]);
+
+    private final ResultVocabulary vocabulary;
+    private final ReadWriteLock vocabularyLock = new ReentrantReadWriteLock();
+
+    private final Object trainingLock = new Object();
+    private MultiLayerNetwork network;
+    private int outputs;
+    private long version = 0;
+    private long trainingSteps = 0;
+
+    // guarded by the vocabulary lock: count of slot resets, and the count as of each slot's last reset
+    private long resets = 0;
+    private final long[] slotResets;
+
+    private final Queue<Replica> idleReplicas = new ConcurrentLinkedQueue<>();
+    private final Semaphore replicaPermits = new Semaphore(MAX_REPLICAS);
+    private final InferenceCache<Inference> inferenceCache = new InferenceCache<>(CACHED_QUERIES);
+
+    /**
+     * If the system property {@value #SNAPSHOT_PROPERTY} names a file, the shared instance starts from the snapshot in
+     * it and saves snapshots there every {@value #SNAPSHOT_PERIOD_MINUTES} minutes (see {@link SnapshotStore}).
+     *
+     * @return Instance shared by the whole application
+     */
+    public static NeuralNetworkManager getShared() {
+        return SharedInstanceHolder.INSTANCE;
+    }
 
     public NeuralNetworkManager() {
-        this.outputLayer = new OutputLayer.Builder()
-                // FIXME: Do this dynamically
-                .nOut(1000)
+        this(DEFAULT_MAX_OUTPUTS);
+    }
+
+    /**
+     * @param maxResults Maximum number of result ids to rank, which bounds the size of the output layer
+     */
+    public NeuralNetworkManager(final int maxResults) {
+        this.vocabulary = new ResultVocabulary(maxResults);
+        this.slotResets = new long[maxResults];
+        this.outputs = Math.min(INITIAL_OUTPUTS, maxResults);
+        this.network = createNetwork(outputs);
+    }
+
+    private static MultiLayerNetwork createNetwork(final int outputs) {
+        final OutputLayer outputLayer = new OutputLayer.Builder()
+                .nOut(outputs)
                 .activation(Activation.SOFTMAX)
                 .build();
 
@@ -49,9 +112,9 @@ public class NeuralNetworkManager {
                 .learningRate(0.02)
                 .updater(new Nesterovs(0.4))
                 .list()
-                .layer(0, new ConvolutionLayer.Builder(ASCII_CHARS, 3)
+                .layer(0, new ConvolutionLayer.Builder(QueryEncoding.ASCII_CHARS, QueryEncoding.KERNEL_WIDTH)
                         .nIn(1)
-                        .nOut(500)
+                        .nOut(QueryEncoding.CONV_CHANNELS)
                         .activation(Activation.IDENTITY)
                         .build())
                 .layer(1, new DenseLayer.Builder()
@@ -60,26 +123,34 @@ public class NeuralNetworkManager {
                 .layer(2, new DenseLayer.Builder()
                         .nOut(100)
                         .build())
-                .layer(3, outputLayer)
-                .setInputType(InputType.convolutionalFlat(ASCII_CHARS, INPUT_DIGITS, 1))
+                .layer(OUTPUT_LAYER, outputLayer)
+                .setInputType(InputType.convolutionalFlat(QueryEncoding.ASCII_CHARS, QueryEncoding.INPUT_DIGITS, 1))
                 .backprop(true)
                 .pretrain(false)
                 .build();
 
-        this.network = new MultiLayerNetwork(configuration);
-        this.network.init();
+        final MultiLayerNetwork network = new MultiLayerNetwork(configuration);
+        network.init();
+        return network;
     }
 
+    @Override
     public void addResults(Collection<Result> results) {
-        results.stream().map(Result::getId).forEach(id -> {
-            if (!resultIds.contains(id)) {
-                resultIds.add(id);
+        vocabularyLock.readLock().lock();
+        try {
+            if (results.stream().map(Result::getId).allMatch(vocabulary::contains)) {
+                return;
             }
-        });
+        } finally {
+            vocabularyLock.readLock().unlock();
+        }
 
-        // FIXME: Uncomment and fix
-//        outputLayer.setNOut(resultIds.size());
-//        network.init();
+        vocabularyLock.writeLock().lock();
+        try {
+            results.stream().map(Result::getId).forEach(this::addId);
+        } finally {
+            vocabularyLock.writeLock().unlock();
+        }
     }
 
     /**
@@ -87,18 +158,131 @@ public class NeuralNetworkManager {
      * @param query which query was used to generate the result.
      * @param result is what user had selected with the given query.
      */
+    @Override
     public void train(String query, Result result) {
-        this.network.fit(inputToArray(query), outputToArray(result.getId()));
+        final int slot;
+        vocabularyLock.writeLock().lock();
+        try {
+            slot = addId(result.getId());
+            vocabulary.picked(slot);
+        } finally {
+            vocabularyLock.writeLock().unlock();
+        }
+
+        final INDArray input = inputToArray(query);
+        synchronized (trainingLock) {
+            this.network.fit(input, outputToArray(slot));
+            version++;
+            trainingSteps++;
+        }
+    }
+
+    /**
+     * Fits a batch of picks in a single training step. Every row carries a one-hot label; a pick counted n times is
+     * repeated as min(n, {@value #MAX_PICK_REPEATS}) identical rows, so frequent picks weigh more without a single
+     * burst of repeated selections dominating the batch.
+     */
+    @Override
+    public void train(List<Pick> picks) {
+        if (picks.isEmpty()) {
+            return;
+        }
+
+        final int[] slots = new int[picks.size()];
+        vocabularyLock.writeLock().lock();
+        try {
+            for (int i = 0; i < slots.length; i++) {
+                final Pick pick = picks.get(i);
+                slots[i] = addId(pick.getResult().getId());
+                for (int j = 0; j < pick.getCount(); j++) {
+                    vocabulary.picked(slots[i]);
+                }
+            }
+        } finally {
+            vocabularyLock.writeLock().unlock();
+        }
+
+        int rows = 0;
+        for (Pick pick : picks) {
+            rows += repeats(pick);
+        }
+        final float[][] inputs = new float[rows][];
+        final int[] rowSlots = new int[rows];
+        int row = 0;
+        for (int i = 0; i < slots.length; i++) {
+            final float[] input = QueryEncoding.encodeDense(picks.get(i).getQuery());
+            for (int j = repeats(picks.get(i)); j > 0; j--) {
+                inputs[row] = input;
+                rowSlots[row++] = slots[i];
+            }
+        }
+        synchronized (trainingLock) {
+            final float[][] labels = new float[rows][outputs];
+            for (int i = 0; i < rows; i++) {
+                labels[i][rowSlots[i]] = 1;
+            }
+            this.network.fit(new NDArray(inputs), new NDArray(labels));
+            version++;
+            trainingSteps++;
+        }
+    }
+
+    private static int repeats(final Pick pick) {
+        return Math.max(1, Math.min(pick.getCount(), MAX_PICK_REPEATS));
     }
 
     /**
-     * Sorts the results based on the query of the user.
-     * Takes into account what neural network is suggesting and does ordering according to.
+     * Scores the candidates for a query with a single inference, gathering only the outputs of the candidates.
+     * Results which are not known to the network score lowest. Outputs of recent queries are cached until the next
+     * training step, so ranking the results of several suppliers for one query runs the network once. Adding results
+     * keeps cached outputs: growing the output layer and resetting recycled slots leave the order of the other slots
+     * as it was, and slots reset since an output was cached score as unknown in it.
+     *
+     * @return Score of each candidate, by position; higher is more relevant
      */
-    public void sort(String query, List<Result> results) {
-        INDArray resultArray = this.network.output(inputToArray(query));
-        List<String> sortedIds = outputArrayToResults(resultArray);
-        results.sort(Comparator.comparingInt(a -> sortedIds.indexOf(a.getId())));
+    @Override
+    public float[] score(String query, List<Result> candidates) {
+        final int[] slots = new int[candidates.size()];
+        final long[] resetAt = new long[slots.length];
+        final long currentResets;
+        vocabularyLock.readLock().lock();
+        try {
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = vocabulary.slotOf(candidates.get(i).getId());
+                resetAt[i] = slots[i] >= 0 ? slotResets[slots[i]] : 0;
+            }
+            currentResets = resets;
+        } finally {
+            vocabularyLock.readLock().unlock();
+        }
+
+        // resets up to now may or may not be reflected in a fresh output; counting them as not reflected is safe
+        final Inference inference = inferenceCache.get(query, getTrainingSteps(), q -> new Inference(output(q), currentResets));
+        final float[] output = inference.output;
+        final float[] scores = new float[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            final boolean known = slots[i] >= 0 && slots[i] < output.length && resetAt[i] <= inference.resets;
+            scores[i] = known ? output[slots[i]] : Float.NEGATIVE_INFINITY;
+        }
+        return scores;
+    }
+
+    /**
+     * @return Share of {@link #score(String, List) scorings} which reused the network output of an earlier one for the
+     * same query, between 0 and 1
+     */
+    public double getCacheHitRatio() {
+        final long hits = inferenceCache.getHits();
+        final long total = hits + inferenceCache.getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public long getCacheHits() {
+        return inferenceCache.getHits();
+    }
+
+    public long getCacheMisses() {
+        return inferenceCache.getMisses();
     }
 
     /**
@@ -106,30 +290,252 @@ public class NeuralNetworkManager {
      * corresponding ascii code position is 1 and everything else 0.
      */
     private INDArray inputToArray(String query) {
-        final String asciiQuery = StringUtils.stripAccents(query);
+        return new NDArray(QueryEncoding.encodeDense(query));
+    }
+
+    /**
+     * Must be called holding the training lock, which guards the output width.
+     */
+    private INDArray outputToArray(int slot) {
+        float[] nodes = new float[outputs];
+        nodes[slot] = 1;
 
-        float[] chars = new float[INPUT_CHANNELS];
-        IntStream.range(0, INPUT_DIGITS).forEach(i -> {
-            if (asciiQuery.length() <= i) return;
+        return new NDArray(nodes);
+    }
 
-            final int asciiCode = asciiQuery.charAt(i) % ASCII_CHARS;
-            chars[i * ASCII_CHARS + asciiCode] = 1;
-        });
-        return new NDArray(chars);
+    /**
+     * Copy the learned state, e.g. to persist it with a {@link SnapshotStore}. Blocks training only for the copy.
+     */
+    NetworkSnapshot snapshot() {
+        vocabularyLock.readLock().lock();
+        try {
+            synchronized (trainingLock) {
+                return new NetworkSnapshot(outputs, vocabulary.ids(), vocabulary.picks(), network.params().dup().data().asFloat());
+            }
+        } finally {
+            vocabularyLock.readLock().unlock();
+        }
     }
 
-    private INDArray outputToArray(String resultId) {
-        float[] nodes = new float[outputLayer.getNOut()];
+    /**
+     * Replace the learned state by a snapshot.
+     *
+     * @throws IllegalArgumentException if the snapshot does not fit this network, e.g. because its architecture or
+     * maximum number of results changed
+     */
+    void restore(final NetworkSnapshot snapshot) {
+        final int restoredOutputs = snapshot.getOutputs();
+        if (restoredOutputs > vocabulary.getMaxSlots() || restoredOutputs < snapshot.getIds().length) {
+            throw new IllegalArgumentException("Snapshot has " + restoredOutputs + " outputs, at most " + vocabulary.getMaxSlots() + " are supported");
+        }
 
-        final int resultIndex = resultIds.indexOf(resultId);
-        nodes[resultIndex] = 1;
+        final MultiLayerNetwork restored = createNetwork(restoredOutputs);
+        if (restored.numParams() != snapshot.getParams().length) {
+            throw new IllegalArgumentException("Snapshot does not match the network architecture");
+        }
+        restored.setParams(new NDArray(snapshot.getParams()));
 
-        return new NDArray(nodes);
+        vocabularyLock.writeLock().lock();
+        try {
+            synchronized (trainingLock) {
+                vocabulary.restore(snapshot.getIds(), snapshot.getPicks());
+                network = restored;
+                outputs = restoredOutputs;
+                version++;
+                trainingSteps++;
+            }
+        } finally {
+            vocabularyLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return Counter which changes whenever the network learns something
+     */
+    long getVersion() {
+        synchronized (trainingLock) {
+            return version;
+        }
+    }
+
+    /**
+     * @return Counter which changes whenever training or a restore changes the output for existing slots
+     */
+    private long getTrainingSteps() {
+        synchronized (trainingLock) {
+            return trainingSteps;
+        }
+    }
+
+    /**
+     * @return Trained weights of an output slot followed by its bias, e.g. to check what survives a resize
+     */
+    float[] outputWeights(final int slot) {
+        synchronized (trainingLock) {
+            final Layer outputLayer = network.getLayer(OUTPUT_LAYER);
+            final float[] weights = outputLayer.getParam("W").getColumn(slot).dup().data().asFloat();
+            final float[] withBias = Arrays.copyOf(weights, weights.length + 1);
+            withBias[weights.length] = outputLayer.getParam("b").getFloat(slot);
+            return withBias;
+        }
+    }
+
+    /**
+     * @return Output of the training network for the dense encoding of the query, which the sparse inference on the
+     * replicas must reproduce
+     */
+    float[] denseOutput(final String query) {
+        synchronized (trainingLock) {
+            return network.output(inputToArray(query)).data().asFloat();
+        }
+    }
+
+    /**
+     * Must be called holding the vocabulary write lock.
+     */
+    private int addId(final String id) {
+        final int slot = vocabulary.add(id, this::resetSlot);
+        if (slot >= outputs) {
+            synchronized (trainingLock) {
+                resizeOutputs(Math.min(vocabulary.getMaxSlots(), Math.max(slot + 1, outputs * 2)));
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Forget what was learned about the previous id of a recycled slot. Must be called holding the vocabulary write
+     * lock.
+     */
+    private void resetSlot(final int slot) {
+        slotResets[slot] = ++resets;
+        synchronized (trainingLock) {
+            final Layer outputLayer = network.getLayer(OUTPUT_LAYER);
+            outputLayer.getParam("W").getColumn(slot).assign(0);
+            outputLayer.getParam("b").putScalar(slot, 0);
+            version++;
+        }
+    }
+
+    /**
+     * Replace the network by one with a wider output layer, carrying over all trained weights. Must be called holding
+     * the training lock.
+     */
+    private void resizeOutputs(final int newOutputs) {
+        final MultiLayerNetwork resized = createNetwork(newOutputs);
+        for (int layer = 0; layer < OUTPUT_LAYER; layer++) {
+            resized.getLayer(layer).setParams(network.getLayer(layer).params());
+        }
+
+        final Layer oldOutputLayer = network.getLayer(OUTPUT_LAYER);
+        final Layer newOutputLayer = resized.getLayer(OUTPUT_LAYER);
+        for (String param : new String[]{"W", "b"}) {
+            newOutputLayer.getParam(param).get(NDArrayIndex.all(), NDArrayIndex.interval(0, outputs))
+                    .assign(oldOutputLayer.getParam(param));
+        }
+
+        network = resized;
+        outputs = newOutputs;
+        version++;
+    }
+
+    /**
+     * Run inference on a replica of the network, so concurrent callers neither block each other nor training. The
+     * query is encoded sparsely into a per-thread buffer and fed to the first layer as character indices.
+     */
+    private float[] output(String query) {
+        final int[] indices = ENCODING_BUFFER.get();
+        final int count = QueryEncoding.encode(query, indices);
+
+        replicaPermits.acquireUninterruptibly();
+        try {
+            final Replica replica = borrowReplica();
+            try {
+                return replica.output(indices, count);
+            } finally {
+                idleReplicas.add(replica);
+            }
+        } finally {
+            replicaPermits.release();
+        }
+    }
+
+    private Replica borrowReplica() {
+        Replica replica = idleReplicas.poll();
+        synchronized (trainingLock) {
+            if (replica == null || replica.source != network) {
+                // new or outdated by a resize of the output layer
+                replica = new Replica(network, network.clone());
+            } else if (replica.version != version) {
+                replica.network.setParams(network.params());
+                replica.copyConvolution();
+            }
+            replica.version = version;
+        }
+        return replica;
+    }
+
+    /**
+     * Cached network output of a query, along with the number of slot resets before it was computed.
+     */
+    private static class Inference {
+        private final float[] output;
+        private final long resets;
+
+        private Inference(final float[] output, final long resets) {
+            this.output = output;
+            this.resets = resets;
+        }
     }
 
-    private List<String> outputArrayToResults(INDArray resultArray) {
-        final List<String> resultVals = new ArrayList<>(resultIds);
-        resultVals.sort((a, b) -> Math.round(Math.signum(resultArray.getFloat(resultIds.indexOf(b)) - resultArray.getFloat(resultIds.indexOf(a)))));
-        return resultVals;
+    /**
+     * Network copy used for inference. Its first layer is evaluated sparsely (see {@link QueryEncoding}), into buffers
+     * owned by the replica, so borrowing it exclusively makes them safe to reuse.
+     */
+    private static class Replica {
+        private final MultiLayerNetwork source;
+        private final MultiLayerNetwork network;
+        private final float[] convolution = new float[QueryEncoding.CONV_OUTPUTS];
+        private final INDArray convolutionActivations = Nd4j.create(1, QueryEncoding.CONV_OUTPUTS);
+        private float[] convolutionWeights;
+        private float[] convolutionBias;
+        private long version;
+
+        private Replica(final MultiLayerNetwork source, final MultiLayerNetwork network) {
+            this.source = source;
+            this.network = network;
+            copyConvolution();
+        }
+
+        private void copyConvolution() {
+            final Layer convolutionLayer = network.getLayer(0);
+            convolutionWeights = convolutionLayer.getParam("W").dup().data().asFloat();
+            convolutionBias = convolutionLayer.getParam("b").dup().data().asFloat();
+        }
+
+        private float[] output(final int[] indices, final int count) {
+            QueryEncoding.convolve(indices, count, convolutionWeights, convolutionBias, convolution);
+            convolutionActivations.data().setData(convolution);
+            return network.activateSelectedLayers(1, OUTPUT_LAYER, convolutionActivations).data().asFloat();
+        }
+    }
+
+    private static class SharedInstanceHolder {
+        private static final NeuralNetworkManager INSTANCE = createShared();
+
+        private static NeuralNetworkManager createShared() {
+            final NeuralNetworkManager manager = new NeuralNetworkManager();
+            final String snapshotFile = System.getProperty(SNAPSHOT_PROPERTY);
+            if (snapshotFile != null && !snapshotFile.isEmpty()) {
+                final SnapshotStore store = new SnapshotStore(Paths.get(snapshotFile));
+                try {
+                    store.restore(manager);
+                } catch (IOException | IllegalArgumentException e) {
+                    // unusable snapshot, start untrained and overwrite it with the next one
+                }
+                store.saveEvery(manager, SNAPSHOT_PERIOD_MINUTES, TimeUnit.MINUTES);
+            }
+            return manager;
+        }
     }
 }
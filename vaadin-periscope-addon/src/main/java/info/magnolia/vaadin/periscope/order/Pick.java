@@ -0,0 +1,90 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.order;
+
+import info.magnolia.vaadin.periscope.result.Result;
+
+import java.util.Objects;
+
+/**
+ * A result the user picked for a query, possibly several times; picks are equal if query and result id are.
+ */
+public class Pick {
+
+    private final String query;
+    private final Result result;
+    private final int count;
+
+    public Pick(final String query, final Result result) {
+        this(query, result, 1);
+    }
+
+    public Pick(final String query, final Result result, final int count) {
+        this.query = query;
+        this.result = result;
+        this.count = count;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public Result getResult() {
+        return result;
+    }
+
+    /**
+     * @return How many times the result was picked for the query
+     */
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final Pick pick = (Pick) o;
+        return query.equals(pick.query) && result.getId().equals(pick.result.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(query, result.getId());
+    }
+}
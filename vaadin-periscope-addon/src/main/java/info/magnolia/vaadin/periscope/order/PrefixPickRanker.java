@@ -0,0 +1,121 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.order;
+
+import info.magnolia.vaadin.periscope.result.Result;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Ranks results by how often they were picked after typing the same query prefix. A pick counts for every prefix of
+ * its query, so "car" ranks what was picked for "cargo"; when scoring, shorter prefixes of the current query count
+ * half as much as the next longer one.
+ * <p>
+ * Counts live in a fixed-size primitive table addressed by hashed (prefix, result id) pairs and are incremented
+ * without locks, so memory does not depend on the number of queries or results.
+ */
+public class PrefixPickRanker implements Ranker {
+
+    private static final int DEFAULT_TABLE_BITS = 18;
+    private static final int MAX_PREFIX_LENGTH = 20;
+
+    private final AtomicIntegerArray counts;
+    private final int tableBits;
+
+    public PrefixPickRanker() {
+        this(DEFAULT_TABLE_BITS);
+    }
+
+    /**
+     * @param tableBits Base two logarithm of the number of counters per table row
+     */
+    public PrefixPickRanker(final int tableBits) {
+        this.tableBits = tableBits;
+        this.counts = new AtomicIntegerArray(HashedCounters.ROWS << tableBits);
+    }
+
+    @Override
+    public void train(final String query, final Result result) {
+        final String normalized = normalize(query);
+        final long idKey = HashedCounters.key(result.getId());
+
+        int prefixHash = 0;
+        for (int length = 1; length <= normalized.length(); length++) {
+            prefixHash = 31 * prefixHash + normalized.charAt(length - 1);
+            final long key = HashedCounters.key(prefixHash, idKey);
+            for (int row = 0; row < HashedCounters.ROWS; row++) {
+                counts.incrementAndGet(HashedCounters.index(key, row, tableBits));
+            }
+        }
+    }
+
+    @Override
+    public float[] score(final String query, final List<Result> candidates) {
+        final String normalized = normalize(query);
+        final int[] prefixHashes = new int[normalized.length()];
+        int prefixHash = 0;
+        for (int i = 0; i < prefixHashes.length; i++) {
+            prefixHash = 31 * prefixHash + normalized.charAt(i);
+            prefixHashes[i] = prefixHash;
+        }
+
+        final float[] scores = new float[candidates.size()];
+        for (int i = 0; i < scores.length; i++) {
+            final long idKey = HashedCounters.key(candidates.get(i).getId());
+            float score = 0;
+            float weight = 1;
+            for (int length = prefixHashes.length; length > 0; length--) {
+                score += weight * count(HashedCounters.key(prefixHashes[length - 1], idKey));
+                weight /= 2;
+            }
+            scores[i] = score;
+        }
+        return scores;
+    }
+
+    private int count(final long key) {
+        int count = Integer.MAX_VALUE;
+        for (int row = 0; row < HashedCounters.ROWS; row++) {
+            count = Math.min(count, counts.get(HashedCounters.index(key, row, tableBits)));
+        }
+        return count;
+    }
+
+    private static String normalize(final String query) {
+        final String normalized = query.trim().toLowerCase(Locale.ROOT);
+        return normalized.length() > MAX_PREFIX_LENGTH ? normalized.substring(0, MAX_PREFIX_LENGTH) : normalized;
+    }
+}
@@ -0,0 +1,98 @@
+package info.magnolia.vaadin.periscope.order;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Sparse encoding of queries for the ranking network, and the first (convolution) layer of the network evaluated
+ * directly on it.
+ * <p>
+ * Conceptually, a query is a one-hot {@code float[INPUT_DIGITS * ASCII_CHARS]} where character {@code i} sets entry
+ * {@code i * ASCII_CHARS + ascii}. At most {@link #INPUT_DIGITS} of those entries are set, so the encoding is just their
+ * indices, written into a caller-provided buffer. The network reshapes that flat input into a
+ * {@code ASCII_CHARS x INPUT_DIGITS} image (row-major) and convolves it with {@code ASCII_CHARS x KERNEL_WIDTH}
+ * kernels; {@link #convolve} reproduces that by gathering kernel weights for the set entries only.
+ */
+final class QueryEncoding {
+
+    static final int ASCII_CHARS = 128;
+    static final int INPUT_DIGITS = 20;
+    static final int INPUT_CHANNELS = INPUT_DIGITS * ASCII_CHARS;
+
+    static final int CONV_CHANNELS = 500;
+    static final int KERNEL_WIDTH = 3;
+    static final int CONV_WIDTH = INPUT_DIGITS - KERNEL_WIDTH + 1;
+    static final int CONV_OUTPUTS = CONV_CHANNELS * CONV_WIDTH;
+
+    private static final int KERNEL_SIZE = ASCII_CHARS * KERNEL_WIDTH;
+
+    private QueryEncoding() {
+    }
+
+    /**
+     * Write the indices of the set entries of the query's one-hot encoding into {@code indices}, which must hold at
+     * least {@link #INPUT_DIGITS} entries.
+     *
+     * @return Number of indices written
+     */
+    static int encode(final String query, final int[] indices) {
+        final String asciiQuery = isAscii(query) ? query : StringUtils.stripAccents(query);
+        final int length = Math.min(asciiQuery.length(), INPUT_DIGITS);
+        for (int i = 0; i < length; i++) {
+            indices[i] = i * ASCII_CHARS + asciiQuery.charAt(i) % ASCII_CHARS;
+        }
+        return length;
+    }
+
+    /**
+     * @return Dense one-hot encoding of the query, as needed for training
+     */
+    static float[] encodeDense(final String query) {
+        final int[] indices = new int[INPUT_DIGITS];
+        final int count = encode(query, indices);
+
+        final float[] dense = new float[INPUT_CHANNELS];
+        for (int i = 0; i < count; i++) {
+            dense[indices[i]] = 1;
+        }
+        return dense;
+    }
+
+    /**
+     * Evaluate the convolution layer (identity activation) on a sparse input.
+     *
+     * @param weights Kernel weights, flattened from shape {@code [CONV_CHANNELS, 1, ASCII_CHARS, KERNEL_WIDTH]}
+     * @param bias Bias of each channel
+     * @param output Receives the activations, flattened from shape {@code [CONV_CHANNELS, 1, CONV_WIDTH]}
+     */
+    static void convolve(final int[] indices, final int count, final float[] weights, final float[] bias, final float[] output) {
+        for (int channel = 0; channel < CONV_CHANNELS; channel++) {
+            final int outputOffset = channel * CONV_WIDTH;
+            final int kernelOffset = channel * KERNEL_SIZE;
+            final float channelBias = bias[channel];
+            for (int x = 0; x < CONV_WIDTH; x++) {
+                output[outputOffset + x] = channelBias;
+            }
+
+            for (int i = 0; i < count; i++) {
+                final int row = indices[i] / INPUT_DIGITS;
+                final int column = indices[i] % INPUT_DIGITS;
+                // the entry is under kernel column k of every output position x = column - k
+                for (int k = 0; k < KERNEL_WIDTH; k++) {
+                    final int x = column - k;
+                    if (x >= 0 && x < CONV_WIDTH) {
+                        output[outputOffset + x] += weights[kernelOffset + row * KERNEL_WIDTH + k];
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isAscii(final String query) {
+        for (int i = 0; i < query.length(); i++) {
+            if (query.charAt(i) >= ASCII_CHARS) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
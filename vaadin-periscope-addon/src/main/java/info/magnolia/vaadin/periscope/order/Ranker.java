@@ -0,0 +1,91 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.order;
+
+import info.magnolia.vaadin.periscope.result.Result;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Orders the results of a query by relevance, learning from the results users pick. Implementations must be
+ * thread-safe, as one instance is typically shared by all sessions.
+ */
+public interface Ranker {
+
+    /**
+     * Make results known to the ranker before they are scored; rankers without per-result state can ignore this.
+     */
+    default void addResults(Collection<Result> results) {
+    }
+
+    /**
+     * Learn from a pick.
+     *
+     * @param query Query which was used to find the result
+     * @param result Result the user picked
+     */
+    void train(String query, Result result);
+
+    /**
+     * Learn from a batch of picks, e.g. as a single training step. Duplicate picks arrive collapsed into one with a
+     * count.
+     */
+    default void train(List<Pick> picks) {
+        picks.forEach(pick -> {
+            for (int i = 0; i < pick.getCount(); i++) {
+                train(pick.getQuery(), pick.getResult());
+            }
+        });
+    }
+
+    /**
+     * @return Score of each candidate, by position; higher is more relevant
+     */
+    float[] score(String query, List<Result> candidates);
+
+    /**
+     * Sort results in place, most relevant first.
+     */
+    default void sort(String query, List<Result> results) {
+        RankingUtil.sortByScore(results, score(query, results));
+    }
+
+    /**
+     * @return The k most relevant results, most relevant first
+     */
+    default List<Result> top(String query, List<Result> results, int k) {
+        return RankingUtil.top(results, score(query, results), k);
+    }
+}
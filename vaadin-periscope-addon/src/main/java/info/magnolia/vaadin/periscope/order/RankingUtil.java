@@ -0,0 +1,146 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.order;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ordering of items by primitive scores (higher is better) without boxing or repeated lookups. Items with equal
+ * scores keep their original order.
+ */
+public abstract class RankingUtil {
+
+    /**
+     * Sort items in place by descending score.
+     *
+     * @param scores Score of each item, by position
+     */
+    public static <T> void sortByScore(final List<T> items, final float[] scores) {
+        final long[] keys = new long[items.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = key(scores[i], i);
+        }
+        Arrays.sort(keys);
+
+        final List<T> original = new ArrayList<>(items);
+        for (int i = 0; i < keys.length; i++) {
+            items.set(i, original.get(index(keys[i])));
+        }
+    }
+
+    /**
+     * Select the k items with the highest scores using a partial sort, which costs O(n log k) rather than O(n log n).
+     *
+     * @param scores Score of each item, by position
+     * @return Best items ordered by descending score
+     */
+    public static <T> List<T> top(final List<T> items, final float[] scores, final int k) {
+        final int size = Math.min(k, items.size());
+        if (size <= 0) {
+            return Collections.emptyList();
+        }
+
+        // max-heap of the best keys seen so far (smaller key is better), its root being the worst of them
+        final long[] heap = new long[size];
+        int heapSize = 0;
+        for (int i = 0; i < items.size(); i++) {
+            final long key = key(scores[i], i);
+            if (heapSize < size) {
+                heap[heapSize] = key;
+                siftUp(heap, heapSize++);
+            } else if (key < heap[0]) {
+                heap[0] = key;
+                siftDown(heap, size);
+            }
+        }
+        Arrays.sort(heap);
+
+        final List<T> best = new ArrayList<>(size);
+        for (long key : heap) {
+            best.add(items.get(index(key)));
+        }
+        return best;
+    }
+
+    /**
+     * Pack score and position into a key whose natural order is descending score, then ascending position.
+     */
+    private static long key(final float score, final int index) {
+        int bits = Float.floatToIntBits(Float.isNaN(score) ? Float.NEGATIVE_INFINITY : score);
+        // make the integer order of the bits match the order of the floats
+        bits ^= (bits >> 31) & 0x7fffffff;
+        return ((long) ~bits << 32) | index;
+    }
+
+    private static int index(final long key) {
+        return (int) key;
+    }
+
+    private static void siftUp(final long[] heap, int position) {
+        while (position > 0) {
+            final int parent = (position - 1) / 2;
+            if (heap[parent] >= heap[position]) {
+                return;
+            }
+            swap(heap, parent, position);
+            position = parent;
+        }
+    }
+
+    private static void siftDown(final long[] heap, final int size) {
+        int position = 0;
+        while (true) {
+            final int left = 2 * position + 1;
+            if (left >= size) {
+                return;
+            }
+            final int right = left + 1;
+            final int larger = right < size && heap[right] > heap[left] ? right : left;
+            if (heap[position] >= heap[larger]) {
+                return;
+            }
+            swap(heap, position, larger);
+            position = larger;
+        }
+    }
+
+    private static void swap(final long[] heap, final int a, final int b) {
+        final long tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+    }
+}
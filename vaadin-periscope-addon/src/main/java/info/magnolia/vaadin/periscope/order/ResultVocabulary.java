@@ -0,0 +1,159 @@
+package info.magnolia.vaadin.periscope.order;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Bounded mapping of result ids to output slots of the ranking network. Lookups are hashed; once the maximum number of
+ * slots is in use, the slot of the least frequently picked id (preferably one never picked, oldest first) is reused.
+ * <p>
+ * Not thread-safe; {@link NeuralNetworkManager} guards it.
+ */
+class ResultVocabulary {
+
+    private static final int INITIAL_SLOTS = 64;
+
+    private final int maxSlots;
+    private final Map<String, Integer> slotsById = new HashMap<>();
+    private final Set<Integer> unpickedSlots = new LinkedHashSet<>();
+
+    private String[] ids = new String[INITIAL_SLOTS];
+    private int[] picks = new int[INITIAL_SLOTS];
+    private int size = 0;
+
+    ResultVocabulary(final int maxSlots) {
+        this.maxSlots = maxSlots;
+    }
+
+    /**
+     * @return Slot of the given id, or -1 if it is unknown
+     */
+    int slotOf(final String id) {
+        final Integer slot = slotsById.get(id);
+        return slot == null ? -1 : slot;
+    }
+
+    boolean contains(final String id) {
+        return slotsById.containsKey(id);
+    }
+
+    /**
+     * Assign a slot to the given id unless it has one already.
+     *
+     * @param onRecycled Called with the slot if it previously belonged to another (evicted) id
+     * @return Slot of the id
+     */
+    int add(final String id, final IntConsumer onRecycled) {
+        final Integer existing = slotsById.get(id);
+        if (existing != null) {
+            return existing;
+        }
+
+        final int slot;
+        if (size < maxSlots) {
+            slot = size++;
+            ensureCapacity(size);
+        } else {
+            slot = leastFrequentlyPicked();
+            slotsById.remove(ids[slot]);
+            unpickedSlots.remove(slot);
+            onRecycled.accept(slot);
+        }
+
+        ids[slot] = id;
+        picks[slot] = 0;
+        slotsById.put(id, slot);
+        unpickedSlots.add(slot);
+        return slot;
+    }
+
+    void picked(final int slot) {
+        if (picks[slot] < Integer.MAX_VALUE) {
+            picks[slot]++;
+        }
+        unpickedSlots.remove(slot);
+    }
+
+    String idAt(final int slot) {
+        return ids[slot];
+    }
+
+    int pickCount(final int slot) {
+        return picks[slot];
+    }
+
+    /**
+     * @return Number of slots in use, all of which are below this number
+     */
+    int size() {
+        return size;
+    }
+
+    int getMaxSlots() {
+        return maxSlots;
+    }
+
+    /**
+     * @return Id of every slot in use, by slot
+     */
+    String[] ids() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * @return Pick count of every slot in use, by slot
+     */
+    int[] picks() {
+        return Arrays.copyOf(picks, size);
+    }
+
+    /**
+     * Replace all mappings by the given ones, e.g. from a snapshot.
+     */
+    void restore(final String[] restoredIds, final int[] restoredPicks) {
+        if (restoredIds.length > maxSlots || restoredIds.length != restoredPicks.length) {
+            throw new IllegalArgumentException("Cannot restore " + restoredIds.length + " ids into " + maxSlots + " slots");
+        }
+
+        slotsById.clear();
+        unpickedSlots.clear();
+        size = restoredIds.length;
+        ids = Arrays.copyOf(restoredIds, Math.max(size, Math.min(maxSlots, INITIAL_SLOTS)));
+        picks = Arrays.copyOf(restoredPicks, ids.length);
+        for (int slot = 0; slot < size; slot++) {
+            slotsById.put(ids[slot], slot);
+            if (picks[slot] == 0) {
+                unpickedSlots.add(slot);
+            }
+        }
+    }
+
+    private int leastFrequentlyPicked() {
+        final Iterator<Integer> unpicked = unpickedSlots.iterator();
+        if (unpicked.hasNext()) {
+            return unpicked.next();
+        }
+
+        // every slot was picked at least once, which is rare enough to afford a scan
+        int candidate = 0;
+        for (int slot = 1; slot < size; slot++) {
+            if (picks[slot] < picks[candidate]) {
+                candidate = slot;
+            }
+        }
+        return candidate;
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity > ids.length) {
+            final int grown = Math.min(maxSlots, Math.max(capacity, ids.length * 2));
+            ids = Arrays.copyOf(ids, grown);
+            picks = Arrays.copyOf(picks, grown);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.order;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Persists what a {@link NeuralNetworkManager} learned to a local file, so ranking survives restarts.
+ * <p>
+ * Snapshots are written to a temporary file next to the target, synced and then moved over it atomically, so a crash
+ * leaves either the previous or the new snapshot behind. A checksum guards against truncated or corrupt files, which
+ * are rejected on {@link #restore(NeuralNetworkManager) restore}. Restoring maps the file into memory instead of
+ * copying it through a stream.
+ */
+public class SnapshotStore {
+
+    private static final int MAGIC = 0x50524b53;
+    private static final int FORMAT_VERSION = 1;
+    private static final int CHECKSUM_BYTES = Long.BYTES;
+
+    private final Path file;
+
+    private ScheduledExecutorService scheduler;
+    private Thread shutdownHook;
+    private long savedVersion = -1;
+    private volatile IOException lastFailure;
+
+    public SnapshotStore(final Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Load the stored snapshot into the given network manager.
+     *
+     * @return {@code false} if there is no snapshot yet
+     * @throws IOException if the snapshot is unreadable or corrupt
+     * @throws IllegalArgumentException if the snapshot does not fit the network manager
+     */
+    public boolean restore(final NeuralNetworkManager manager) throws IOException {
+        if (!Files.exists(file)) {
+            return false;
+        }
+        manager.restore(read());
+        return true;
+    }
+
+    /**
+     * Write a snapshot of the given network manager, unless it did not learn anything since the last one.
+     */
+    public synchronized void save(final NeuralNetworkManager manager) throws IOException {
+        final long version = manager.getVersion();
+        if (version == savedVersion) {
+            return;
+        }
+        write(manager.snapshot());
+        savedVersion = version;
+    }
+
+    /**
+     * Save snapshots periodically on a background thread, and once more when the JVM shuts down. Failures are kept
+     * (see {@link #getLastFailure()}) and retried with the next period.
+     */
+    public synchronized void saveEvery(final NeuralNetworkManager manager, final long period, final TimeUnit unit) {
+        stop();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "periscope-snapshots");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> saveQuietly(manager), period, period, unit);
+
+        shutdownHook = new Thread(() -> saveQuietly(manager), "periscope-snapshots-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Stop saving snapshots periodically.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (shutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // already shutting down, the hook runs anyway
+            }
+            shutdownHook = null;
+        }
+    }
+
+    /**
+     * @return Why the most recent periodic snapshot failed, if it did
+     */
+    public Optional<IOException> getLastFailure() {
+        return Optional.ofNullable(lastFailure);
+    }
+
+    private void saveQuietly(final NeuralNetworkManager manager) {
+        try {
+            save(manager);
+            lastFailure = null;
+        } catch (IOException e) {
+            lastFailure = e;
+        }
+    }
+
+    void write(final NetworkSnapshot snapshot) throws IOException {
+        final Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        final Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+
+        try {
+            try (FileOutputStream fileStream = new FileOutputStream(temporary.toFile())) {
+                final BufferedOutputStream buffered = new BufferedOutputStream(fileStream, 1 << 16);
+                final CheckedOutputStream checked = new CheckedOutputStream(buffered, new CRC32());
+                final DataOutputStream data = new DataOutputStream(checked);
+
+                data.writeInt(MAGIC);
+                data.writeInt(FORMAT_VERSION);
+                data.writeInt(snapshot.getOutputs());
+                data.writeInt(snapshot.getIds().length);
+                for (int slot = 0; slot < snapshot.getIds().length; slot++) {
+                    final byte[] id = snapshot.getIds()[slot].getBytes(StandardCharsets.UTF_8);
+                    data.writeInt(id.length);
+                    data.write(id);
+                    data.writeInt(snapshot.getPicks()[slot]);
+                }
+                data.writeInt(snapshot.getParams().length);
+                for (float param : snapshot.getParams()) {
+                    data.writeFloat(param);
+                }
+                data.flush();
+
+                // the checksum itself is not part of the checksum
+                new DataOutputStream(buffered).writeLong(checked.getChecksum().getValue());
+                buffered.flush();
+                fileStream.getFD().sync();
+            }
+
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    NetworkSnapshot read() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < 4 * Integer.BYTES + CHECKSUM_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a ranking snapshot: " + file);
+            }
+            final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            final ByteBuffer content = mapped.duplicate();
+            content.limit(content.capacity() - CHECKSUM_BYTES);
+            final CRC32 crc = new CRC32();
+            crc.update(content);
+            if (crc.getValue() != mapped.getLong(mapped.capacity() - CHECKSUM_BYTES)) {
+                throw new IOException("Corrupt ranking snapshot: " + file);
+            }
+
+            final ByteBuffer buffer = mapped.duplicate();
+            buffer.limit(buffer.capacity() - CHECKSUM_BYTES);
+            try {
+                return read(buffer);
+            } catch (RuntimeException e) {
+                throw new IOException("Malformed ranking snapshot: " + file, e);
+            }
+        }
+    }
+
+    private static NetworkSnapshot read(final ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            throw new IOException("Unsupported ranking snapshot format");
+        }
+
+        final int outputs = buffer.getInt();
+        final int size = buffer.getInt();
+        final String[] ids = new String[size];
+        final int[] picks = new int[size];
+        for (int slot = 0; slot < size; slot++) {
+            final byte[] id = new byte[buffer.getInt()];
+            buffer.get(id);
+            ids[slot] = new String(id, StandardCharsets.UTF_8);
+            picks[slot] = buffer.getInt();
+        }
+
+        final float[] params = new float[buffer.getInt()];
+        buffer.asFloatBuffer().get(params);
+        return new NetworkSnapshot(outputs, ids, picks, params);
+    }
+}
@@ -0,0 +1,220 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.order;
+
+import info.magnolia.vaadin.periscope.result.Result;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Ranker} decorator which trains in the background: picks go into a bounded queue and a trainer thread feeds
+ * them to the wrapped ranker in mini-batches, with duplicate picks collapsed. When the queue is full, callers wait
+ * briefly for room and the pick is dropped if none frees up, so a slow trainer never stalls the UI.
+ * <p>
+ * The trainer thread runs until the queue is {@link #close() closed}, e.g. when the application is undeployed.
+ */
+public class TrainingQueue implements Ranker, AutoCloseable {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int DEFAULT_BATCH_SIZE = 32;
+    private static final long OFFER_TIMEOUT = 50;
+
+    private final Ranker delegate;
+    private final BlockingQueue<Pick> queue;
+    private final int batchSize;
+    private final Thread trainer;
+    private volatile boolean closed = false;
+
+    private final AtomicLong droppedPicks = new AtomicLong();
+    private final Object progressLock = new Object();
+    private long queuedPicks = 0;
+    private long processedPicks = 0;
+
+    public TrainingQueue(final Ranker delegate) {
+        this(delegate, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE);
+    }
+
+    public TrainingQueue(final Ranker delegate, final int capacity, final int batchSize) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+
+        trainer = new Thread(this::trainContinuously, "periscope-trainer");
+        trainer.setDaemon(true);
+        trainer.start();
+    }
+
+    @Override
+    public void addResults(final Collection<Result> results) {
+        delegate.addResults(results);
+    }
+
+    /**
+     * Queue a pick for training; returns right away unless the queue is full.
+     */
+    @Override
+    public void train(final String query, final Result result) {
+        enqueue(new Pick(query, result));
+    }
+
+    /**
+     * Queue picks for training, keeping their counts.
+     */
+    @Override
+    public void train(final List<Pick> picks) {
+        picks.forEach(this::enqueue);
+    }
+
+    private void enqueue(final Pick pick) {
+        synchronized (progressLock) {
+            queuedPicks++;
+        }
+
+        boolean queued;
+        try {
+            queued = !closed && queue.offer(pick, OFFER_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (queued && closed && queue.remove(pick)) {
+            // closed while offering, nobody is left to train it
+            queued = false;
+        }
+
+        if (!queued) {
+            droppedPicks.incrementAndGet();
+            picksProcessed(1);
+        }
+    }
+
+    @Override
+    public float[] score(final String query, final List<Result> candidates) {
+        return delegate.score(query, candidates);
+    }
+
+    @Override
+    public void sort(final String query, final List<Result> results) {
+        delegate.sort(query, results);
+    }
+
+    @Override
+    public List<Result> top(final String query, final List<Result> results, final int k) {
+        return delegate.top(query, results, k);
+    }
+
+    /**
+     * Block until every pick queued before this call was trained (or dropped), e.g. for tests.
+     */
+    public void flush() throws InterruptedException {
+        synchronized (progressLock) {
+            final long target = queuedPicks;
+            while (processedPicks < target) {
+                progressLock.wait();
+            }
+        }
+    }
+
+    /**
+     * Stop the trainer thread. Picks which were not trained yet are dropped, so {@link #flush()} first to keep them;
+     * picks queued afterwards are dropped right away.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        trainer.interrupt();
+        try {
+            trainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        final List<Pick> discarded = new ArrayList<>();
+        queue.drainTo(discarded);
+        droppedPicks.addAndGet(discarded.size());
+        picksProcessed(discarded.size());
+    }
+
+    /**
+     * @return Number of picks which were not trained because the queue was full or closed
+     */
+    public long getDroppedPicks() {
+        return droppedPicks.get();
+    }
+
+    private void trainContinuously() {
+        final List<Pick> drained = new ArrayList<>(batchSize);
+        while (!closed) {
+            try {
+                drained.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(drained, batchSize - 1);
+
+            try {
+                delegate.train(collapse(drained));
+            } catch (RuntimeException e) {
+                // a failing batch must not stop training for good
+            } finally {
+                picksProcessed(drained.size());
+                drained.clear();
+            }
+        }
+    }
+
+    private static List<Pick> collapse(final List<Pick> picks) {
+        final Map<Pick, Integer> counts = new LinkedHashMap<>();
+        picks.forEach(pick -> counts.merge(pick, pick.getCount(), Integer::sum));
+
+        final List<Pick> collapsed = new ArrayList<>(counts.size());
+        counts.forEach((pick, count) -> collapsed.add(new Pick(pick.getQuery(), pick.getResult(), count)));
+        return collapsed;
+    }
+
+    private void picksProcessed(final int picks) {
+        synchronized (progressLock) {
+            processedPicks += picks;
+            progressLock.notifyAll();
+        }
+    }
+}
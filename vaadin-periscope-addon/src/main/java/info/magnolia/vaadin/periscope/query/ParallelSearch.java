@@ -0,0 +1,302 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.query;
+
+import info.magnolia.vaadin.periscope.result.QueryContext;
+import info.magnolia.vaadin.periscope.result.Result;
+import info.magnolia.vaadin.periscope.result.ResultSupplier;
+import info.magnolia.vaadin.periscope.result.SearchCancelledException;
+import info.magnolia.vaadin.periscope.tracing.Span;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs synchronous {@link ResultSupplier}s in parallel on a bounded executor. Every supplier has a deadline relative to
+ * the start of the search; suppliers missing it are reported as timed out rather than holding up the others.
+ */
+public class ParallelSearch {
+
+    private static final int DEFAULT_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final int DEFAULT_QUEUE_SIZE = 256;
+
+    private static final ExecutorService DEFAULT_EXECUTOR = createDefaultExecutor();
+
+    private final ExecutorService executor;
+    private final Map<ResultSupplier, Long> supplierTimeouts = new ConcurrentHashMap<>();
+    private volatile long timeout = 1000;
+
+    public ParallelSearch() {
+        this(DEFAULT_EXECUTOR);
+    }
+
+    public ParallelSearch(final ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @param timeout Default deadline in milliseconds for a supplier to deliver its results
+     */
+    public void setTimeout(final long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * @param timeout Deadline in milliseconds for the given supplier, overriding the default one
+     */
+    public void setTimeout(final ResultSupplier supplier, final long timeout) {
+        supplierTimeouts.put(supplier, timeout);
+    }
+
+    /**
+     * Start searching all suppliers at once, without any means to cancel them from outside.
+     *
+     * @see #start(Collection, String, QueryContext)
+     */
+    public FanOut start(final Collection<ResultSupplier> suppliers, final String query) {
+        return start(suppliers, query, QueryContext.unbounded());
+    }
+
+    /**
+     * Start searching all suppliers at once. Each supplier gets its own child of the given context, which is cancelled
+     * when it misses its deadline and traced by its own span below the one of the given context.
+     *
+     * @return Outcomes in the order of the given suppliers; iterating blocks until the next one is available
+     */
+    public FanOut start(final Collection<ResultSupplier> suppliers, final String query, final QueryContext context) {
+        return start(suppliers, query, context, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Start searching the first page of results of all suppliers at once.
+     *
+     * @param limit Maximum number of results per supplier
+     * @see #start(Collection, String, QueryContext)
+     */
+    public FanOut start(final Collection<ResultSupplier> suppliers, final String query, final QueryContext context, final int limit) {
+        final long start = System.currentTimeMillis();
+        final List<PendingSearch> searches = new ArrayList<>(suppliers.size());
+        for (ResultSupplier supplier : suppliers) {
+            final Span span = context.getSpan().child("search").attribute("supplier", supplier.getTitle());
+            final QueryContext supplierContext = context.forSupplier(start + supplierTimeouts.getOrDefault(supplier, timeout)).withSpan(span);
+            final PendingSearch search = new PendingSearch(supplier, supplierContext);
+            search.submit(executor, () -> supplier.search(query, supplierContext, 0, limit));
+            searches.add(search);
+        }
+        return new FanOut(searches);
+    }
+
+    /**
+     * Search a further page of one supplier's results in the background, e.g. when the user asks for more, so the
+     * calling thread does not wait for it. The supplier gets a child of the given context with its deadline counted
+     * from now, which it is expected to honour; cancelling the given context interrupts the search.
+     *
+     * @return Completes with the page, or exceptionally if the search failed, was cancelled or could not be submitted
+     */
+    public CompletableFuture<List<Result>> searchPage(final ResultSupplier supplier, final String query, final QueryContext context,
+                                                      final int offset, final int limit) {
+        final Span span = context.getSpan().child("search").attribute("supplier", supplier.getTitle()).attribute("offset", offset);
+        final QueryContext supplierContext = context.forSupplier(System.currentTimeMillis() + supplierTimeouts.getOrDefault(supplier, timeout)).withSpan(span);
+        final CompletableFuture<List<Result>> page = new CompletableFuture<>();
+        try {
+            final Future<?> search = executor.submit(() -> {
+                try {
+                    final List<Result> results = supplier.search(query, supplierContext, offset, limit);
+                    span.attribute("results", results.size());
+                    page.complete(results);
+                } catch (SearchCancelledException e) {
+                    span.attribute("status", "cancelled");
+                    page.completeExceptionally(e);
+                } catch (RuntimeException e) {
+                    span.attribute("status", "failed").error(e);
+                    page.completeExceptionally(e);
+                } finally {
+                    span.end();
+                }
+            });
+            supplierContext.getToken().onCancel(() -> {
+                search.cancel(true);
+                page.completeExceptionally(new SearchCancelledException());
+            });
+        } catch (RejectedExecutionException e) {
+            span.attribute("status", "rejected").end();
+            page.completeExceptionally(e);
+        }
+        return page;
+    }
+
+    private static ExecutorService createDefaultExecutor() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_THREADS, DEFAULT_THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(DEFAULT_QUEUE_SIZE), runnable -> {
+            final Thread thread = new Thread(runnable, "periscope-search-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Searches of a single query, yielding their outcomes in supplier order.
+     */
+    public static class FanOut implements Iterable<SearchOutcome> {
+
+        private final List<PendingSearch> searches;
+
+        private FanOut(final List<PendingSearch> searches) {
+            this.searches = searches;
+        }
+
+        /**
+         * Abort all searches which did not complete yet.
+         */
+        public void cancel() {
+            searches.forEach(PendingSearch::cancel);
+        }
+
+        @Override
+        public Iterator<SearchOutcome> iterator() {
+            final Iterator<PendingSearch> pending = searches.iterator();
+            return new Iterator<SearchOutcome>() {
+                @Override
+                public boolean hasNext() {
+                    return pending.hasNext();
+                }
+
+                @Override
+                public SearchOutcome next() {
+                    if (!pending.hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return pending.next().await();
+                }
+            };
+        }
+    }
+
+    private static class PendingSearch {
+
+        private final ResultSupplier supplier;
+        private final QueryContext context;
+        private final long started = System.nanoTime();
+        private volatile long finished;
+        private Future<List<Result>> future;
+
+        private PendingSearch(final ResultSupplier supplier, final QueryContext context) {
+            this.supplier = supplier;
+            this.context = context;
+        }
+
+        private void submit(final ExecutorService executor, final Callable<List<Result>> search) {
+            final Span span = context.getSpan();
+            try {
+                future = executor.submit(() -> {
+                    try {
+                        final List<Result> results = search.call();
+                        span.attribute("results", results.size());
+                        return results;
+                    } catch (SearchCancelledException e) {
+                        span.attribute("status", "cancelled");
+                        throw e;
+                    } catch (Exception e) {
+                        span.attribute("status", "failed").error(e);
+                        throw e;
+                    } finally {
+                        finished = System.nanoTime();
+                        span.end();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                future = null;
+                span.attribute("status", "rejected").end();
+            }
+        }
+
+        /**
+         * @return Time the supplier took, or has taken so far if it did not finish yet
+         */
+        private long elapsed() {
+            final long end = finished;
+            return (end != 0 ? end : System.nanoTime()) - started;
+        }
+
+        private SearchOutcome await() {
+            if (future == null) {
+                return SearchOutcome.failed(supplier, new RejectedExecutionException("Search executor is saturated"), 0);
+            }
+
+            try {
+                final List<Result> results = future.get(context.getRemainingMillis(), TimeUnit.MILLISECONDS);
+                return SearchOutcome.completed(supplier, results, elapsed());
+            } catch (TimeoutException e) {
+                context.getSpan().attribute("status", "timedOut");
+                cancel();
+                return SearchOutcome.timedOut(supplier, elapsed());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof SearchCancelledException) {
+                    return SearchOutcome.timedOut(supplier, elapsed());
+                }
+                return SearchOutcome.failed(supplier, e.getCause(), elapsed());
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                return SearchOutcome.failed(supplier, e, elapsed());
+            }
+        }
+
+        private void cancel() {
+            context.getToken().cancel();
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.query;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Debouncing stage between the search field and the result suppliers. Keystrokes are collected until the user pauses
+ * for the current debounce window; only the latest query is then dispatched, intermediate ones are dropped. The window
+ * adapts to the measured supplier latency, so slow backends are queried less eagerly than fast ones.
+ */
+public class QueryDispatcher {
+
+    private static final ScheduledExecutorService DEFAULT_SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "periscope-query-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Consumer<String> target;
+    private final Scheduler scheduler;
+
+    private long minimumDelay = 30;
+    private long maximumDelay = 300;
+    private double latencyFactor = 0.5;
+    private double smoothing = 0.3;
+
+    private double averageLatency = 0;
+    private long generation = 0;
+    private Future<?> pending;
+    private String pendingQuery;
+    private String lastDispatched;
+    private long droppedQueries = 0;
+
+    public QueryDispatcher(final Consumer<String> target) {
+        this(target, (task, delay) -> DEFAULT_SCHEDULER.schedule(task, delay, TimeUnit.MILLISECONDS));
+    }
+
+    public QueryDispatcher(final Consumer<String> target, final Scheduler scheduler) {
+        this.target = target;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Submit a query as typed by the user. It is dispatched once no further query was submitted within the debounce
+     * window; a query equal to the one last dispatched only cancels what is pending.
+     */
+    public synchronized void submit(final String query) {
+        cancelPending();
+
+        if (query.equals(lastDispatched)) {
+            return;
+        }
+
+        pendingQuery = query;
+        final long submitted = ++generation;
+        pending = scheduler.schedule(() -> fire(submitted), getDelay());
+    }
+
+    /**
+     * Record a query which is consumed without going through the dispatcher (e.g. a voice command, which is not typed),
+     * dropping whatever is pending.
+     */
+    public synchronized void bypass(final String query) {
+        cancelPending();
+        generation++;
+        lastDispatched = query;
+    }
+
+    /**
+     * Report how long suppliers took to answer a dispatched query, which drives the debounce window.
+     */
+    public synchronized void recordLatency(final long millis) {
+        averageLatency = averageLatency + smoothing * (millis - averageLatency);
+    }
+
+    /**
+     * @return Current debounce window in milliseconds
+     */
+    public synchronized long getDelay() {
+        final long adaptive = Math.round(averageLatency * latencyFactor);
+        return Math.max(minimumDelay, Math.min(maximumDelay, adaptive));
+    }
+
+    /**
+     * @return Number of submitted queries which were never dispatched because a newer one superseded them
+     */
+    public synchronized long getDroppedQueries() {
+        return droppedQueries;
+    }
+
+    public synchronized void setMinimumDelay(final long minimumDelay) {
+        this.minimumDelay = minimumDelay;
+    }
+
+    public synchronized void setMaximumDelay(final long maximumDelay) {
+        this.maximumDelay = maximumDelay;
+    }
+
+    /**
+     * @param latencyFactor Share of the average supplier latency to wait for further keystrokes
+     */
+    public synchronized void setLatencyFactor(final double latencyFactor) {
+        this.latencyFactor = latencyFactor;
+    }
+
+    /**
+     * @param smoothing Weight of a new latency sample in the moving average, between 0 (ignore) and 1 (only latest)
+     */
+    public synchronized void setSmoothing(final double smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    private void fire(final long submitted) {
+        final String query;
+        synchronized (this) {
+            if (submitted != generation || pendingQuery == null) {
+                return;
+            }
+            query = pendingQuery;
+            pending = null;
+            pendingQuery = null;
+            lastDispatched = query;
+        }
+        target.accept(query);
+    }
+
+    private void cancelPending() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+            pendingQuery = null;
+            droppedQueries++;
+        }
+    }
+
+    /**
+     * Delays execution of the dispatch; replaceable to run on simulated time.
+     */
+    @FunctionalInterface
+    public interface Scheduler {
+        Future<?> schedule(Runnable task, long delayMillis);
+    }
+}
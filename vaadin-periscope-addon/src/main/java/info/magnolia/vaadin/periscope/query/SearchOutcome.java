@@ -0,0 +1,96 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.query;
+
+import info.magnolia.vaadin.periscope.result.Result;
+import info.magnolia.vaadin.periscope.result.ResultSupplier;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Outcome of searching a single supplier: either its results, a timeout or a failure.
+ */
+public class SearchOutcome {
+
+    private final ResultSupplier supplier;
+    private final List<Result> results;
+    private final boolean timedOut;
+    private final Throwable failure;
+    private final long durationNanos;
+
+    private SearchOutcome(final ResultSupplier supplier, final List<Result> results, final boolean timedOut, final Throwable failure, final long durationNanos) {
+        this.supplier = supplier;
+        this.results = results;
+        this.timedOut = timedOut;
+        this.failure = failure;
+        this.durationNanos = durationNanos;
+    }
+
+    static SearchOutcome completed(final ResultSupplier supplier, final List<Result> results, final long durationNanos) {
+        return new SearchOutcome(supplier, results, false, null, durationNanos);
+    }
+
+    static SearchOutcome timedOut(final ResultSupplier supplier, final long durationNanos) {
+        return new SearchOutcome(supplier, Collections.emptyList(), true, null, durationNanos);
+    }
+
+    static SearchOutcome failed(final ResultSupplier supplier, final Throwable failure, final long durationNanos) {
+        return new SearchOutcome(supplier, Collections.emptyList(), false, failure, durationNanos);
+    }
+
+    public ResultSupplier getSupplier() {
+        return supplier;
+    }
+
+    public List<Result> getResults() {
+        return results;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public Optional<Throwable> getFailure() {
+        return Optional.ofNullable(failure);
+    }
+
+    /**
+     * @return Time the supplier took to complete or fail, or until it was given up on
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+}
@@ -41,4 +41,17 @@ import java.util.concurrent.CompletableFuture;
  * provide a list of results as soon as available.
  */
 public interface AsyncResultSupplier extends PeriscopeSupplier<CompletableFuture<List<Result>>> {
+
+    /**
+     * Search a single page of results. By default, the page is cut out of the full result list, so every "show more"
+     * runs the whole search again: suppliers whose backend pages natively or which can stop early should override this,
+     * and expensive ones which cannot should be wrapped in a {@link CachingAsyncResultSupplier}, which searches once
+     * per query.
+     *
+     * @param offset Number of results to skip
+     * @param limit Maximum number of results to return
+     */
+    default CompletableFuture<List<Result>> search(String query, QueryContext context, int offset, int limit) throws SearchFailedException {
+        return search(query, context).thenApply(results -> SupplierUtil.page(results, offset, limit));
+    }
 }
@@ -0,0 +1,216 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Caches the results of another {@link AsyncResultSupplier} by query, for a limited time and number of queries.
+ * Concurrent searches for the same query share one pending search, and failed searches are not cached. If the wrapped
+ * supplier is a {@link NarrowingSupplier}, a query extending one with completed results is answered by narrowing them.
+ * <p>
+ * Every search gets its own future of a copy of the cached results, so callers may sort them in place and cancel the
+ * future without affecting others. The shared search runs without a deadline and is only cancelled once all searches
+ * which joined it were cancelled; the cancellation and deadline of each search only fail its own future.
+ *
+ * @see CachingResultSupplier
+ */
+public class CachingAsyncResultSupplier implements AsyncResultSupplier {
+
+    private static final long DEFAULT_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(5);
+    private static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private static final ScheduledExecutorService DEADLINE_SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "periscope-cache-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AsyncResultSupplier delegate;
+    private final ResultCache<SharedSearch> cache;
+
+    public CachingAsyncResultSupplier(final AsyncResultSupplier delegate) {
+        this(delegate, DEFAULT_TIME_TO_LIVE, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param timeToLive Milliseconds after which cached results are searched again
+     * @param maxEntries Number of queries to keep results for
+     */
+    public CachingAsyncResultSupplier(final AsyncResultSupplier delegate, final long timeToLive, final int maxEntries) {
+        this(delegate, timeToLive, maxEntries, System::currentTimeMillis);
+    }
+
+    CachingAsyncResultSupplier(final AsyncResultSupplier delegate, final long timeToLive, final int maxEntries, final LongSupplier clock) {
+        this.delegate = delegate;
+        this.cache = new ResultCache<>(timeToLive, maxEntries, clock);
+    }
+
+    @Override
+    public String getTitle() {
+        return delegate.getTitle();
+    }
+
+    @Override
+    public CompletableFuture<List<Result>> search(final String query) throws SearchFailedException {
+        return search(query, QueryContext.unbounded());
+    }
+
+    @Override
+    public CompletableFuture<List<Result>> search(final String query, final QueryContext context) throws SearchFailedException {
+        return cachedSearch(query, context).thenApply(ArrayList::new);
+    }
+
+    @Override
+    public CompletableFuture<List<Result>> search(final String query, final QueryContext context, final int offset, final int limit) throws SearchFailedException {
+        return cachedSearch(query, context).thenApply(results -> SupplierUtil.page(results, offset, limit));
+    }
+
+    /**
+     * @return Future of unmodifiable results of the query, failing on its own once the given context is cancelled
+     */
+    private CompletableFuture<List<Result>> cachedSearch(final String query, final QueryContext context) throws SearchFailedException {
+        final Optional<SharedSearch> cached = cache.get(query);
+        if (cached.isPresent() && cached.get().join()) {
+            return cached.get().viewFor(context);
+        }
+
+        final Optional<SharedSearch> parent = delegate instanceof NarrowingSupplier ? cache.getForPrefix(query) : Optional.empty();
+        if (parent.isPresent() && isSuccessful(parent.get().results)) {
+            // pending parents may still be cancelled along with their query, so only completed ones are narrowed
+            final List<Result> narrowed = CachingResultSupplier.narrow((NarrowingSupplier) delegate, parent.get().results.join(), query);
+            final SharedSearch search = new SharedSearch(new CancellationToken(), CompletableFuture.completedFuture(Collections.unmodifiableList(narrowed)));
+            cache.put(query, search);
+            return search.results;
+        }
+
+        final CancellationToken token = new CancellationToken();
+        final QueryContext shared = new QueryContext(token, Long.MAX_VALUE, context.getSpan());
+        final CompletableFuture<List<Result>> results = delegate.search(query, context.getHighlighter().map(shared::withHighlighter).orElse(shared))
+                .thenApply(found -> Collections.unmodifiableList(new ArrayList<>(found)));
+        final SharedSearch search = new SharedSearch(token, results);
+        search.join();
+        cache.put(query, search);
+        results.whenComplete((found, failure) -> {
+            if (failure != null) {
+                cache.remove(query, search);
+            }
+        });
+        return search.viewFor(context);
+    }
+
+    /**
+     * Forget all cached results, e.g. because the underlying data changed.
+     */
+    public void invalidate() {
+        cache.clear();
+    }
+
+    private static boolean isSuccessful(final CompletableFuture<?> future) {
+        return future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    /**
+     * Pending or completed search of a query, shared by all searches which joined it. It is cancelled once every one
+     * of them left before it completed.
+     */
+    private static class SharedSearch {
+        private final CancellationToken token;
+        private final CompletableFuture<List<Result>> results;
+        private int joined = 0;
+
+        private SharedSearch(final CancellationToken token, final CompletableFuture<List<Result>> results) {
+            this.token = token;
+            this.results = results;
+        }
+
+        /**
+         * @return Whether the search could be joined, i.e. was not cancelled already because all others left
+         */
+        private synchronized boolean join() {
+            if (token.isCancelled()) {
+                return false;
+            }
+            joined++;
+            return true;
+        }
+
+        private void leave() {
+            final boolean abandoned;
+            synchronized (this) {
+                abandoned = --joined == 0 && !results.isDone();
+            }
+            if (abandoned) {
+                token.cancel();
+            }
+        }
+
+        /**
+         * @return Future of the shared results for a joined search, which fails on its own once the context of that
+         * search is cancelled or past its deadline, and then leaves the shared search
+         */
+        private CompletableFuture<List<Result>> viewFor(final QueryContext context) {
+            if (results.isDone()) {
+                leave();
+                return results;
+            }
+
+            final CompletableFuture<List<Result>> view = new CompletableFuture<>();
+            results.whenComplete((found, failure) -> {
+                if (failure != null) {
+                    view.completeExceptionally(failure);
+                } else {
+                    view.complete(found);
+                }
+            });
+            context.getToken().onCancel(() -> view.completeExceptionally(new SearchCancelledException()));
+            if (context.getDeadline() != Long.MAX_VALUE) {
+                final Future<?> expiry = DEADLINE_SCHEDULER.schedule(() -> view.completeExceptionally(new SearchCancelledException()),
+                        context.getRemainingMillis(), TimeUnit.MILLISECONDS);
+                view.whenComplete((found, failure) -> expiry.cancel(false));
+            }
+            view.whenComplete((found, failure) -> leave());
+            return view;
+        }
+    }
+}
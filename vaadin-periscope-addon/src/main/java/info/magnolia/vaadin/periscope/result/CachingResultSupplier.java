@@ -0,0 +1,133 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Caches the results of another {@link ResultSupplier} by query, for a limited time and number of queries. If the
+ * wrapped supplier is a {@link NarrowingSupplier}, a query extending a cached one (e.g. "carg" after "car") is answered
+ * by narrowing the cached results without searching again.
+ * <p>
+ * Results are shared by everyone using the same instance, so wrap suppliers whose results do not depend on the user,
+ * or use an instance per user. Every search returns a copy of the cached results, which callers may sort in place.
+ * Pages are cut out of the cached results, so fetching more of them does not search the wrapped supplier again.
+ */
+public class CachingResultSupplier implements ResultSupplier {
+
+    private static final long DEFAULT_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(5);
+    private static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private final ResultSupplier delegate;
+    private final ResultCache<List<Result>> cache;
+
+    public CachingResultSupplier(final ResultSupplier delegate) {
+        this(delegate, DEFAULT_TIME_TO_LIVE, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param timeToLive Milliseconds after which cached results are searched again
+     * @param maxEntries Number of queries to keep results for
+     */
+    public CachingResultSupplier(final ResultSupplier delegate, final long timeToLive, final int maxEntries) {
+        this(delegate, timeToLive, maxEntries, System::currentTimeMillis);
+    }
+
+    CachingResultSupplier(final ResultSupplier delegate, final long timeToLive, final int maxEntries, final LongSupplier clock) {
+        this.delegate = delegate;
+        this.cache = new ResultCache<>(timeToLive, maxEntries, clock);
+    }
+
+    @Override
+    public String getTitle() {
+        return delegate.getTitle();
+    }
+
+    @Override
+    public List<Result> search(final String query) throws SearchFailedException {
+        return search(query, QueryContext.unbounded());
+    }
+
+    @Override
+    public List<Result> search(final String query, final QueryContext context) throws SearchFailedException {
+        return new ArrayList<>(cachedSearch(query, context));
+    }
+
+    @Override
+    public List<Result> search(final String query, final QueryContext context, final int offset, final int limit) throws SearchFailedException {
+        return SupplierUtil.page(cachedSearch(query, context), offset, limit);
+    }
+
+    /**
+     * @return Unmodifiable results shared by all searches of the query
+     */
+    private List<Result> cachedSearch(final String query, final QueryContext context) throws SearchFailedException {
+        final Optional<List<Result>> cached = cache.get(query);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        final List<Result> results;
+        final Optional<List<Result>> parent = delegate instanceof NarrowingSupplier ? cache.getForPrefix(query) : Optional.empty();
+        if (parent.isPresent()) {
+            results = Collections.unmodifiableList(narrow((NarrowingSupplier) delegate, parent.get(), query));
+        } else {
+            results = Collections.unmodifiableList(new ArrayList<>(delegate.search(query, context)));
+        }
+
+        cache.put(query, results);
+        return results;
+    }
+
+    /**
+     * Forget all cached results, e.g. because the underlying data changed.
+     */
+    public void invalidate() {
+        cache.clear();
+    }
+
+    static List<Result> narrow(final NarrowingSupplier supplier, final List<Result> results, final String query) {
+        return results.stream()
+                .map(result -> supplier.narrow(result, query))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(Collectors.toList());
+    }
+}
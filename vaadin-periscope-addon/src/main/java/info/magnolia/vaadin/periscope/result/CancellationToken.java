@@ -0,0 +1,104 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.result;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Signal for cooperatively stopping a search once its results are no longer needed, e.g. because the user typed on.
+ * Suppliers either poll {@link #isCancelled()} or register a callback to abort blocking work such as HTTP calls.
+ */
+public class CancellationToken {
+
+    private final List<Runnable> callbacks = new ArrayList<>();
+    private volatile boolean cancelled = false;
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Cancel and run all registered callbacks. Cancelling more than once has no further effect.
+     */
+    public void cancel() {
+        final List<Runnable> toRun;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            toRun = new ArrayList<>(callbacks);
+            callbacks.clear();
+        }
+
+        RuntimeException failure = null;
+        for (Runnable callback : toRun) {
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Register a callback to run on cancellation; it runs right away if this token is already cancelled.
+     */
+    public void onCancel(final Runnable callback) {
+        synchronized (this) {
+            if (!cancelled) {
+                callbacks.add(callback);
+                return;
+            }
+        }
+        callback.run();
+    }
+
+    /**
+     * @return Token which is cancelled along with this one, but can also be cancelled on its own
+     */
+    public CancellationToken newChild() {
+        final CancellationToken child = new CancellationToken();
+        onCancel(child::cancel);
+        return child;
+    }
+}
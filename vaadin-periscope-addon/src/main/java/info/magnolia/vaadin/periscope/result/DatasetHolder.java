@@ -0,0 +1,199 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.result;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Holds the current snapshot of a supplier's data, e.g. an index or an {@link IndexedResultSupplier}, and replaces it
+ * with a freshly loaded one on {@link #reload()}.
+ * <p>
+ * Snapshots are loaded on a background thread and published with an atomic swap: readers never wait for a reload,
+ * and a search which fetched the snapshot once keeps a consistent view even if it is replaced meanwhile. Snapshots
+ * should therefore be immutable. Reloads requested while one is queued are coalesced, and a failed reload keeps the
+ * previous snapshot.
+ * <p>
+ * Replaced snapshots which are {@link AutoCloseable}, e.g. a {@link MappedIndexResultSupplier}, are closed once the new
+ * one is published and the listeners were called; their {@code close()} must therefore not break searches which still
+ * run on them. Failures of listeners and of closing are passed to the reload thread's uncaught exception handler and
+ * do not fail the reload, since the new snapshot is published by then.
+ *
+ * @param <T> Snapshot type
+ */
+public class DatasetHolder<T> {
+
+    private final Callable<? extends T> loader;
+    private final AtomicReference<T> snapshot;
+    private final List<Consumer<? super T>> listeners = new CopyOnWriteArrayList<>();
+
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> periodicReload;
+    private CompletableFuture<T> pendingReload;
+
+    /**
+     * Load the first snapshot right away, on the calling thread.
+     *
+     * @throws IllegalStateException if it cannot be loaded
+     */
+    public DatasetHolder(final Callable<? extends T> loader) {
+        this(load(loader), loader);
+    }
+
+    /**
+     * @param initial Snapshot to start with, e.g. an empty one to not delay startup
+     */
+    public DatasetHolder(final T initial, final Callable<? extends T> loader) {
+        this.loader = loader;
+        this.snapshot = new AtomicReference<>(initial);
+    }
+
+    /**
+     * @return Current snapshot; fetch it once per search for a consistent view
+     */
+    public T get() {
+        return snapshot.get();
+    }
+
+    /**
+     * Load a new snapshot in the background and publish it once complete.
+     *
+     * @return Completes with the new snapshot, or exceptionally if loading failed
+     */
+    public synchronized CompletableFuture<T> reload() {
+        if (pendingReload != null) {
+            return pendingReload;
+        }
+
+        final CompletableFuture<T> reload = new CompletableFuture<>();
+        pendingReload = reload;
+        executor().execute(() -> {
+            synchronized (this) {
+                // reloads requested from now on must see data changed during this one
+                pendingReload = null;
+            }
+            try {
+                final T loaded = loader.call();
+                final T previous = snapshot.getAndSet(loaded);
+                for (Consumer<? super T> listener : listeners) {
+                    try {
+                        listener.accept(loaded);
+                    } catch (RuntimeException e) {
+                        report(e);
+                    }
+                }
+                if (previous != loaded) {
+                    close(previous);
+                }
+                reload.complete(loaded);
+            } catch (Exception e) {
+                reload.completeExceptionally(e);
+            }
+        });
+        return reload;
+    }
+
+    /**
+     * Reload periodically, e.g. to pick up catalog changes.
+     */
+    public synchronized void reloadEvery(final long period, final TimeUnit unit) {
+        if (periodicReload != null) {
+            periodicReload.cancel(false);
+        }
+        periodicReload = executor().scheduleWithFixedDelay(this::reload, period, period, unit);
+    }
+
+    /**
+     * @param listener Called with every newly published snapshot, e.g. to invalidate caches
+     */
+    public void onReload(final Consumer<? super T> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stop reloading; the current snapshot remains available.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+            periodicReload = null;
+            pendingReload = null;
+        }
+    }
+
+    private ScheduledExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "periscope-dataset-reload");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    private static void close(final Object replaced) {
+        if (replaced instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) replaced).close();
+            } catch (Exception e) {
+                report(e);
+            }
+        }
+    }
+
+    private static void report(final Exception e) {
+        final Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+
+    private static <T> T load(final Callable<? extends T> loader) {
+        try {
+            return loader.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not load dataset", e);
+        }
+    }
+}
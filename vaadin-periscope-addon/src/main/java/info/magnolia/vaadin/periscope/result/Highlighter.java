@@ -0,0 +1,289 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.result;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Highlights (using HTML tags) all occurrences of any of a set of terms in a plain text, ignoring case, and escapes the
+ * rest of the text. The terms are compiled into an Aho-Corasick automaton once, so a highlighter is meant to be
+ * created per query and reused for all of its results; each text is then scanned once, and overlapping or adjacent
+ * occurrences are merged into a single highlighted span.
+ * <p>
+ * Instances are immutable and safe to share between threads.
+ */
+public final class Highlighter {
+
+    private static final String START_TAG = "<strong>";
+    private static final String END_TAG = "</strong>";
+
+    private final List<String> terms;
+
+    /**
+     * Transitions of the automaton in an open-addressing table, keyed by state and folded character.
+     */
+    private final long[] transitionKeys;
+    private final int[] transitionTargets;
+    private final int transitionMask;
+
+    private final int[] fail;
+
+    /**
+     * Length of the longest term ending in each state, or zero if none does.
+     */
+    private final int[] longestMatch;
+
+    private Highlighter(final List<String> terms) {
+        this.terms = Collections.unmodifiableList(terms);
+
+        int maxStates = 1;
+        for (String term : terms) {
+            maxStates += term.length();
+        }
+        final int capacity = Integer.highestOneBit(Math.max(2, maxStates) * 2 - 1) << 1;
+        transitionKeys = new long[capacity];
+        transitionTargets = new int[capacity];
+        Arrays.fill(transitionKeys, -1);
+        transitionMask = capacity - 1;
+
+        fail = new int[maxStates];
+        longestMatch = new int[maxStates];
+
+        // trie of all terms
+        final int[] parents = new int[maxStates];
+        final char[] incoming = new char[maxStates];
+        final int[] depths = new int[maxStates];
+        int states = 1;
+        for (String term : terms) {
+            int state = 0;
+            for (int i = 0; i < term.length(); i++) {
+                final char c = fold(term.charAt(i));
+                int next = transition(state, c);
+                if (next < 0) {
+                    next = states++;
+                    addTransition(state, c, next);
+                    parents[next] = state;
+                    incoming[next] = c;
+                    depths[next] = i + 1;
+                }
+                state = next;
+            }
+            longestMatch[state] = Math.max(longestMatch[state], term.length());
+        }
+
+        // failure links by increasing depth, so the ones of shorter prefixes are known already
+        final Integer[] byDepth = new Integer[states - 1];
+        for (int state = 1; state < states; state++) {
+            byDepth[state - 1] = state;
+        }
+        Arrays.sort(byDepth, (left, right) -> Integer.compare(depths[left], depths[right]));
+        for (int state : byDepth) {
+            fail[state] = parents[state] == 0 ? 0 : step(fail[parents[state]], incoming[state]);
+            longestMatch[state] = Math.max(longestMatch[state], longestMatch[fail[state]]);
+        }
+    }
+
+    /**
+     * @param terms Terms to highlight; blank ones are ignored
+     */
+    public static Highlighter of(final String... terms) {
+        return of(Arrays.asList(terms));
+    }
+
+    /**
+     * @param terms Terms to highlight; blank ones are ignored
+     */
+    public static Highlighter of(final Collection<String> terms) {
+        final List<String> nonBlank = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            if (StringUtils.isNotBlank(term)) {
+                nonBlank.add(term);
+            }
+        }
+        return new Highlighter(nonBlank);
+    }
+
+    /**
+     * @return Highlighter of each whitespace separated word of the given query
+     */
+    public static Highlighter ofWords(final String query) {
+        return of(StringUtils.split(StringUtils.defaultString(query)));
+    }
+
+    public List<String> getTerms() {
+        return terms;
+    }
+
+    /**
+     * @param text Plain text in which the terms should be highlighted
+     * @return HTML of the escaped text with the terms highlighted
+     */
+    public String highlight(final String text) {
+        return toHtml(text, findMatches(text));
+    }
+
+    /**
+     * Find all occurrences of the terms in a single scan.
+     *
+     * @return Start and end offsets of the occurrences, in pairs and ascending order, with overlapping or adjacent
+     * ones merged
+     */
+    public int[] findMatches(final String text) {
+        int[] spans = new int[8];
+        int spanCount = 0;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, fold(text.charAt(i)));
+            final int match = longestMatch[state];
+            if (match == 0) {
+                continue;
+            }
+
+            // a long match may reach back over several earlier spans, which all merge into it
+            int start = i + 1 - match;
+            while (spanCount > 0 && start <= spans[spanCount * 2 - 1]) {
+                start = Math.min(start, spans[spanCount * 2 - 2]);
+                spanCount--;
+            }
+            if (spanCount * 2 == spans.length) {
+                spans = Arrays.copyOf(spans, spans.length * 2);
+            }
+            spans[spanCount * 2] = start;
+            spans[spanCount * 2 + 1] = i + 1;
+            spanCount++;
+        }
+        return Arrays.copyOf(spans, spanCount * 2);
+    }
+
+    /**
+     * Write a plain text as HTML front to back, escaping it and highlighting the given parts.
+     *
+     * @param matches Start and end offsets of the parts to highlight, in pairs and ascending order
+     */
+    public static String toHtml(final String text, final int[] matches) {
+        final int length = text.length();
+        final StringBuilder html = new StringBuilder(length + matches.length / 2 * (START_TAG.length() + END_TAG.length()) + 16);
+        int position = 0;
+        for (int span = 0; span + 1 < matches.length; span += 2) {
+            escape(text, position, matches[span], html);
+            html.append(START_TAG);
+            escape(text, matches[span], matches[span + 1], html);
+            html.append(END_TAG);
+            position = matches[span + 1];
+        }
+        escape(text, position, length, html);
+        return html.toString();
+    }
+
+    private int step(int state, final char c) {
+        while (true) {
+            final int next = transition(state, c);
+            if (next >= 0) {
+                return next;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = fail[state];
+        }
+    }
+
+    private int transition(final int state, final char c) {
+        final long key = key(state, c);
+        for (int slot = slot(key); ; slot = (slot + 1) & transitionMask) {
+            if (transitionKeys[slot] == key) {
+                return transitionTargets[slot];
+            }
+            if (transitionKeys[slot] < 0) {
+                return -1;
+            }
+        }
+    }
+
+    private void addTransition(final int state, final char c, final int target) {
+        final long key = key(state, c);
+        int slot = slot(key);
+        while (transitionKeys[slot] >= 0) {
+            slot = (slot + 1) & transitionMask;
+        }
+        transitionKeys[slot] = key;
+        transitionTargets[slot] = target;
+    }
+
+    private int slot(final long key) {
+        return (int) (key * 0x9E3779B97F4A7C15L >>> 40) & transitionMask;
+    }
+
+    private static long key(final int state, final char c) {
+        return (long) state << 16 | c;
+    }
+
+    /**
+     * Case folding matching {@link String#regionMatches(boolean, int, String, int, int)} ignoring case.
+     */
+    private static char fold(final char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private static void escape(final String text, final int from, final int to, final StringBuilder html) {
+        for (int i = from; i < to; i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    html.append("&amp;");
+                    break;
+                case '<':
+                    html.append("&lt;");
+                    break;
+                case '>':
+                    html.append("&gt;");
+                    break;
+                case '"':
+                    html.append("&quot;");
+                    break;
+                case '\'':
+                    html.append("&#39;");
+                    break;
+                default:
+                    html.append(c);
+            }
+        }
+    }
+}
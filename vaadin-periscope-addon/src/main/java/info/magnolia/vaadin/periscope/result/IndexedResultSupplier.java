@@ -0,0 +1,251 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.result;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Base class for suppliers searching a static catalog of named entries by case-insensitive substring, without scanning
+ * the whole catalog on every keystroke.
+ * <p>
+ * The catalog is indexed once: names are case-folded and sorted, and every 1-, 2- and 3-gram of a name points to the
+ * entries containing it. Entries whose name starts with the query are found by binary search and come first; other
+ * matches are taken from the postings of the query's rarest n-gram and verified. Only as many matches as asked for
+ * are looked at.
+ *
+ * @param <T> Entry type, e.g. the URL a name stands for
+ */
+public abstract class IndexedResultSupplier<T> implements ResultSupplier {
+
+    private static final int DEFAULT_LIMIT = 50;
+
+    private final String[] names;
+    private final String[] foldedNames;
+    private final List<T> entries;
+    private final Map<Long, int[]> postings;
+    private final int limit;
+
+    protected IndexedResultSupplier(final Map<String, T> catalog) {
+        this(catalog, DEFAULT_LIMIT);
+    }
+
+    /**
+     * @param catalog Entries by name, which is what queries are matched against
+     * @param limit Maximum number of results of an unpaged search; paged searches go as far as they ask
+     */
+    protected IndexedResultSupplier(final Map<String, T> catalog, final int limit) {
+        this.limit = limit;
+
+        final List<Map.Entry<String, T>> sorted = new ArrayList<>(catalog.entrySet());
+        final List<String> folded = new ArrayList<>(sorted.size());
+        sorted.forEach(entry -> folded.add(NGrams.fold(entry.getKey())));
+        final Integer[] order = new Integer[sorted.size()];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparing(folded::get));
+
+        names = new String[order.length];
+        foldedNames = new String[order.length];
+        entries = new ArrayList<>(order.length);
+        for (int id = 0; id < order.length; id++) {
+            names[id] = sorted.get(order[id]).getKey();
+            foldedNames[id] = folded.get(order[id]);
+            entries.add(sorted.get(order[id]).getValue());
+        }
+        postings = index(foldedNames);
+    }
+
+    /**
+     * Create the result for a matching entry.
+     *
+     * @param name Name of the entry, as given in the catalog
+     */
+    protected abstract Result createResult(String name, T entry, String query);
+
+    /**
+     * Create the result for a matching entry of a search with the given context, e.g. to reuse the context's
+     * {@link QueryContext#getHighlighter() highlighter} of the query; by default the context is ignored.
+     *
+     * @param context Context of the search, carrying a highlighter of the query
+     */
+    protected Result createResult(final String name, final T entry, final String query, final QueryContext context) {
+        return createResult(name, entry, query);
+    }
+
+    @Override
+    public List<Result> search(final String query) throws SearchFailedException {
+        return search(query, QueryContext.unbounded());
+    }
+
+    @Override
+    public List<Result> search(final String query, final QueryContext context) throws SearchFailedException {
+        return results(find(query, limit), 0, query, context);
+    }
+
+    /**
+     * Search only as many matches as the page needs, even beyond the limit of an unpaged search.
+     */
+    @Override
+    public List<Result> search(final String query, final QueryContext context, final int offset, final int limit) throws SearchFailedException {
+        return results(find(query, (int) Math.min((long) offset + limit, Integer.MAX_VALUE)), offset, query, context);
+    }
+
+    private List<Result> results(final int[] ids, final int offset, final String query, final QueryContext context) {
+        final QueryContext highlighting = context.withHighlighterOf(query);
+        final List<Result> results = new ArrayList<>(Math.max(0, ids.length - offset));
+        for (int i = offset; i < ids.length; i++) {
+            results.add(createResult(names[ids[i]], entries.get(ids[i]), query, highlighting));
+        }
+        return results;
+    }
+
+    /**
+     * @return Entry of the given name, found by binary search
+     */
+    protected Optional<T> getEntry(final String name) {
+        final String folded = NGrams.fold(name);
+        for (int id = lowerBound(folded); id < foldedNames.length && foldedNames[id].equals(folded); id++) {
+            if (names[id].equals(name)) {
+                return Optional.of(entries.get(id));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return Number of entries in the catalog
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @return Ids (positions in name order) of at most {@code max} matching entries, prefix matches first
+     */
+    int[] find(final String query, final int max) {
+        final String foldedQuery = NGrams.fold(query);
+        final int[] found = new int[Math.min(max, names.length)];
+        int count = 0;
+
+        final int prefixStart = lowerBound(foldedQuery);
+        int prefixEnd = prefixStart;
+        while (prefixEnd < foldedNames.length && foldedNames[prefixEnd].startsWith(foldedQuery)) {
+            if (count < found.length) {
+                found[count++] = prefixEnd;
+            }
+            prefixEnd++;
+        }
+
+        if (count < found.length && !foldedQuery.isEmpty()) {
+            for (int id : rarestPostings(foldedQuery)) {
+                if (count == found.length) {
+                    break;
+                }
+                if ((id < prefixStart || id >= prefixEnd) && foldedNames[id].contains(foldedQuery)) {
+                    found[count++] = id;
+                }
+            }
+        }
+        return count == found.length ? found : Arrays.copyOf(found, count);
+    }
+
+    private int[] rarestPostings(final String foldedQuery) {
+        final int gram = Math.min(NGrams.MAX_GRAM, foldedQuery.length());
+        int[] rarest = null;
+        for (int start = 0; start + gram <= foldedQuery.length(); start++) {
+            final int[] candidates = postings.get(NGrams.key(foldedQuery, start, gram));
+            if (candidates == null) {
+                return new int[0];
+            }
+            if (rarest == null || candidates.length < rarest.length) {
+                rarest = candidates;
+            }
+        }
+        return rarest;
+    }
+
+    /**
+     * @return First position whose name is not less than the given one
+     */
+    private int lowerBound(final String folded) {
+        int low = 0;
+        int high = foldedNames.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (foldedNames[middle].compareTo(folded) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static Map<Long, int[]> index(final String[] foldedNames) {
+        final Map<Long, int[]> lists = new HashMap<>();
+        final Map<Long, Integer> sizes = new HashMap<>();
+        for (int id = 0; id < foldedNames.length; id++) {
+            final String name = foldedNames[id];
+            for (int gram = 1; gram <= NGrams.MAX_GRAM; gram++) {
+                for (int start = 0; start + gram <= name.length(); start++) {
+                    final Long key = NGrams.key(name, start, gram);
+                    int[] list = lists.get(key);
+                    final int size = sizes.getOrDefault(key, 0);
+                    if (size > 0 && list[size - 1] == id) {
+                        // gram occurs repeatedly in the same name
+                        continue;
+                    }
+                    if (list == null) {
+                        list = new int[4];
+                    } else if (size == list.length) {
+                        list = Arrays.copyOf(list, size * 2);
+                    }
+                    list[size] = id;
+                    lists.put(key, list);
+                    sizes.put(key, size + 1);
+                }
+            }
+        }
+
+        final Map<Long, int[]> postings = new HashMap<>(lists.size() * 4 / 3 + 1);
+        lists.forEach((key, list) -> postings.put(key, Arrays.copyOf(list, sizes.get(key))));
+        return Collections.unmodifiableMap(postings);
+    }
+}
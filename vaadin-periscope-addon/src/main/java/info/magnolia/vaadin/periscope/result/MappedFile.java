@@ -0,0 +1,98 @@
+package info.magnolia.vaadin.periscope.result;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only view of a file of any size, memory-mapped in chunks since a single mapping is limited to 2 GB. Reads are
+ * absolute, so instances are thread-safe; the operating system pages data in on access.
+ */
+final class MappedFile implements Closeable {
+
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final long size;
+
+    MappedFile(final Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        size = channel.size();
+        chunks = new MappedByteBuffer[(int) ((size + CHUNK_SIZE - 1) >>> CHUNK_BITS)];
+        for (int i = 0; i < chunks.length; i++) {
+            final long start = (long) i << CHUNK_BITS;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_SIZE, size - start));
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    byte get(final long position) {
+        return chunks[(int) (position >>> CHUNK_BITS)].get((int) (position & CHUNK_MASK));
+    }
+
+    int getInt(final long position) {
+        final int offset = (int) (position & CHUNK_MASK);
+        if (offset + Integer.BYTES <= CHUNK_SIZE) {
+            return chunks[(int) (position >>> CHUNK_BITS)].getInt(offset);
+        }
+        int value = 0;
+        for (int i = 0; i < Integer.BYTES; i++) {
+            value = value << 8 | get(position + i) & 0xff;
+        }
+        return value;
+    }
+
+    long getLong(final long position) {
+        final int offset = (int) (position & CHUNK_MASK);
+        if (offset + Long.BYTES <= CHUNK_SIZE) {
+            return chunks[(int) (position >>> CHUNK_BITS)].getLong(offset);
+        }
+        return (long) getInt(position) << 32 | getInt(position + Integer.BYTES) & 0xffffffffL;
+    }
+
+    /**
+     * Read an unsigned LEB128 varint.
+     *
+     * @param position Holds the position to read at, advanced past the varint
+     */
+    int getVarInt(final long[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = get(position[0]++);
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Read a varint-length-prefixed UTF-8 string.
+     *
+     * @param position Holds the position to read at, advanced past the string
+     */
+    String getString(final long[] position) {
+        final byte[] bytes = new byte[getVarInt(position)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = get(position[0] + i);
+        }
+        position[0] += bytes.length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
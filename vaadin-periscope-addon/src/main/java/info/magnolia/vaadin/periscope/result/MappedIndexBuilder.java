@@ -0,0 +1,610 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.result;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+/**
+ * Writes the index files read by {@link MappedIndexResultSupplier}, from entries added one by one or read from CSV
+ * (name and value in the first two columns) or JSON lines (objects with {@code name} and {@code value}).
+ * <p>
+ * The build is an external sort, so the heap does not grow with the catalog: added entries are sorted by case-folded
+ * name in runs of {@value #ENTRIES_PER_RUN}, which are spilled to temporary files. Writing merges these runs into the
+ * entries of the index, collecting the n-gram postings of each run of entries as well; they are spilled sorted by
+ * n-gram and merged into the postings and the n-gram table. Plan for temporary disk space of about twice the size of
+ * the index, next to the heap for one run of entries and their postings.
+ * <p>
+ * The index is written to a temporary file next to the target, synced and then moved over it atomically, so readers
+ * never see a partially written index.
+ * <p>
+ * From the command line: {@code MappedIndexBuilder <catalog.csv|catalog.jsonl> <index file>}.
+ */
+public class MappedIndexBuilder {
+
+    private static final int ENTRIES_PER_PARTITION = 1 << 20;
+    private static final int ENTRIES_PER_RUN = 1 << 16;
+    private static final String TEMPORARY_PREFIX = "periscope-index";
+
+    private static final Comparator<String[]> ENTRY_ORDER = Comparator.<String[], String>comparing(entry -> entry[2])
+            .thenComparing(entry -> entry[0]);
+
+    private final int entriesPerPartition;
+    private final int entriesPerRun;
+    private final List<String[]> pending = new ArrayList<>();
+    private final List<Path> entryRuns = new ArrayList<>();
+    private int entryCount = 0;
+
+    public MappedIndexBuilder() {
+        this(ENTRIES_PER_PARTITION, ENTRIES_PER_RUN);
+    }
+
+    /**
+     * @param entriesPerPartition Number of entries per hash partition of the n-gram table
+     * @param entriesPerRun Number of entries (and their postings) sorted on the heap before spilling them to disk
+     */
+    MappedIndexBuilder(final int entriesPerPartition, final int entriesPerRun) {
+        this.entriesPerPartition = entriesPerPartition;
+        this.entriesPerRun = entriesPerRun;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: MappedIndexBuilder <catalog.csv|catalog.jsonl> <index file>");
+            System.exit(1);
+        }
+
+        final Path source = Paths.get(args[0]);
+        final MappedIndexBuilder builder = new MappedIndexBuilder();
+        try (Reader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            if (source.getFileName().toString().endsWith(".csv")) {
+                builder.readCsv(reader);
+            } else {
+                builder.readJsonLines(reader);
+            }
+        }
+        builder.write(Paths.get(args[1]));
+    }
+
+    public MappedIndexBuilder add(final String name, final String value) {
+        pending.add(new String[]{name, value == null ? "" : value, NGrams.fold(name)});
+        entryCount++;
+        if (pending.size() >= entriesPerRun) {
+            try {
+                spillEntries();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Add the entries of a CSV source, quoted as per RFC 4180, taking the first column as name and the second (if any)
+     * as value.
+     */
+    public MappedIndexBuilder readCsv(final Reader reader) throws IOException {
+        final Reader buffered = reader instanceof BufferedReader ? reader : new BufferedReader(reader);
+        final List<String> columns = new ArrayList<>();
+        final StringBuilder column = new StringBuilder();
+        boolean quoted = false;
+        boolean rowStarted = false;
+
+        int c;
+        while ((c = buffered.read()) != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    buffered.mark(1);
+                    if (buffered.read() == '"') {
+                        column.append('"');
+                    } else {
+                        buffered.reset();
+                        quoted = false;
+                    }
+                } else {
+                    column.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                rowStarted = true;
+            } else if (c == ',') {
+                columns.add(column.toString());
+                column.setLength(0);
+                rowStarted = true;
+            } else if (c == '\n' || c == '\r') {
+                if (rowStarted || column.length() > 0) {
+                    columns.add(column.toString());
+                    addRow(columns);
+                }
+                columns.clear();
+                column.setLength(0);
+                rowStarted = false;
+            } else {
+                column.append((char) c);
+            }
+        }
+        if (rowStarted || column.length() > 0) {
+            columns.add(column.toString());
+            addRow(columns);
+        }
+        return this;
+    }
+
+    /**
+     * Add the entries of a JSON lines source, one object with {@code name} and optionally {@code value} per line.
+     */
+    public MappedIndexBuilder readJsonLines(final Reader reader) throws IOException {
+        final BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            final JsonObject object = Json.parse(line);
+            add(object.getString("name"), object.hasKey("value") ? object.getString("value") : null);
+        }
+        return this;
+    }
+
+    /**
+     * Write the index of all added entries, replacing the file. The entries are consumed, so the builder starts over
+     * empty afterwards.
+     */
+    public void write(final Path indexFile) throws IOException {
+        final int partitions = (int) Math.max(1, ((long) entryCount + entriesPerPartition - 1) / entriesPerPartition);
+        final List<Path> postingsRuns = new ArrayList<>();
+        final List<Path> scratch = new ArrayList<>();
+        final Path directory = indexFile.toAbsolutePath().getParent();
+        final Path temporary = Files.createTempFile(directory, indexFile.getFileName().toString(), ".tmp");
+
+        try {
+            spillEntries();
+            final Path offsets = createScratchFile(scratch, ".offsets");
+            final Path table = createScratchFile(scratch, ".table");
+
+            try (FileOutputStream fileStream = new FileOutputStream(temporary.toFile())) {
+                final IndexOutput output = new IndexOutput(fileStream);
+                output.write(new byte[MappedIndexResultSupplier.HEADER_SIZE]);
+
+                writeEntries(output, offsets, partitions, postingsRuns);
+
+                final long entryOffsetsPosition = output.position;
+                Files.copy(offsets, output);
+
+                final long postingsPosition = output.position;
+                final long[] partitionStarts = writePostings(postingsRuns, partitions, output, table);
+
+                final long directoryPosition = output.position;
+                for (long start : partitionStarts) {
+                    output.writeLong(start);
+                }
+
+                final long tablePosition = output.position;
+                Files.copy(table, output);
+                output.flush();
+
+                final ByteBuffer header = ByteBuffer.allocate(MappedIndexResultSupplier.HEADER_SIZE);
+                header.putInt(MappedIndexResultSupplier.MAGIC);
+                header.putInt(MappedIndexResultSupplier.FORMAT_VERSION);
+                header.putInt(entryCount);
+                header.putInt(partitions);
+                header.putLong(entryOffsetsPosition);
+                header.putLong(postingsPosition);
+                header.putLong(directoryPosition);
+                header.putLong(tablePosition);
+                header.flip();
+                final FileChannel channel = fileStream.getChannel();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                fileStream.getFD().sync();
+            }
+
+            try {
+                Files.move(temporary, indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            scratch.addAll(entryRuns);
+            scratch.addAll(postingsRuns);
+            entryRuns.clear();
+            pending.clear();
+            entryCount = 0;
+            for (Path file : scratch) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Sort the pending entries and spill them into a new run.
+     */
+    private void spillEntries() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        pending.sort(ENTRY_ORDER);
+        final Path run = createScratchFile(entryRuns, ".entries");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+            for (String[] entry : pending) {
+                writeText(output, entry[0]);
+                writeText(output, entry[1]);
+            }
+        }
+        pending.clear();
+    }
+
+    /**
+     * Merge the entry runs into the entries of the index, in name order, writing their offsets to a scratch file and
+     * spilling the postings of every run of entries.
+     */
+    private void writeEntries(final IndexOutput output, final Path offsets, final int partitions, final List<Path> postingsRuns) throws IOException {
+        final List<EntryRun> runs = new ArrayList<>();
+        try (DataOutputStream offsetOutput = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(offsets), 1 << 16))) {
+            final PriorityQueue<EntryRun> heads = new PriorityQueue<>();
+            for (Path file : entryRuns) {
+                final EntryRun run = new EntryRun(file, runs.size());
+                runs.add(run);
+                if (run.next()) {
+                    heads.add(run);
+                }
+            }
+
+            final Map<Long, int[]> lists = new HashMap<>();
+            int id = 0;
+            while (!heads.isEmpty()) {
+                final EntryRun run = heads.poll();
+                offsetOutput.writeLong(output.position);
+                output.writeString(run.name);
+                output.writeString(run.value);
+                addPostings(lists, run.folded, id++);
+                if (id % entriesPerRun == 0) {
+                    spillPostings(lists, partitions, postingsRuns);
+                }
+                if (run.next()) {
+                    heads.add(run);
+                }
+            }
+            spillPostings(lists, partitions, postingsRuns);
+        } finally {
+            for (EntryRun run : runs) {
+                run.close();
+            }
+        }
+    }
+
+    /**
+     * Add an entry to the postings of all n-grams of its case-folded name.
+     */
+    private static void addPostings(final Map<Long, int[]> lists, final String name, final int id) {
+        for (int gram = 1; gram <= NGrams.MAX_GRAM; gram++) {
+            for (int start = 0; start + gram <= name.length(); start++) {
+                final long key = NGrams.key(name, start, gram);
+                // element 0 holds the size of the list
+                int[] list = lists.get(key);
+                if (list == null) {
+                    list = new int[4];
+                    lists.put(key, list);
+                } else if (list[list[0]] == id) {
+                    continue;
+                } else if (list[0] + 1 == list.length) {
+                    list = Arrays.copyOf(list, list.length * 2);
+                    lists.put(key, list);
+                }
+                list[++list[0]] = id;
+            }
+        }
+    }
+
+    /**
+     * Spill the collected postings into a new run, sorted by partition and n-gram like the n-gram table.
+     */
+    private static void spillPostings(final Map<Long, int[]> lists, final int partitions, final List<Path> postingsRuns) throws IOException {
+        if (lists.isEmpty()) {
+            return;
+        }
+        final long[] keys = lists.keySet().stream().sorted((a, b) -> compareGrams(a, b, partitions))
+                .mapToLong(Long::longValue).toArray();
+        final Path run = createScratchFile(postingsRuns, ".postings");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+            for (long key : keys) {
+                final int[] list = lists.get(key);
+                output.writeLong(key);
+                output.writeInt(list[0]);
+                for (int i = 1; i <= list[0]; i++) {
+                    output.writeInt(list[i]);
+                }
+            }
+        }
+        lists.clear();
+    }
+
+    /**
+     * Merge the postings runs into the postings of the index, writing their table records sorted by partition and
+     * n-gram to a scratch file. Runs hold ascending ranges of ids, so the postings of an n-gram are concatenated in
+     * run order.
+     *
+     * @return First table record of every partition, plus the number of records
+     */
+    private static long[] writePostings(final List<Path> postingsRuns, final int partitions, final IndexOutput output, final Path table) throws IOException {
+        final long[] directory = new long[partitions + 1];
+        final List<PostingsRun> runs = new ArrayList<>();
+        try (DataOutputStream tableOutput = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(table), 1 << 16))) {
+            final PriorityQueue<PostingsRun> heads = new PriorityQueue<>();
+            for (Path file : postingsRuns) {
+                final PostingsRun run = new PostingsRun(file, runs.size(), partitions);
+                runs.add(run);
+                if (run.next()) {
+                    heads.add(run);
+                }
+            }
+
+            long records = 0;
+            int partition = 0;
+            while (!heads.isEmpty()) {
+                final long key = heads.peek().key;
+                final int keyPartition = MappedIndexResultSupplier.partition(key, partitions);
+                while (partition <= keyPartition) {
+                    directory[partition++] = records;
+                }
+
+                final long position = output.position;
+                int count = 0;
+                int previous = 0;
+                while (!heads.isEmpty() && heads.peek().key == key) {
+                    final PostingsRun run = heads.poll();
+                    for (int i = 0; i < run.count; i++) {
+                        final int id = run.input.readInt();
+                        output.writeVarInt(id - previous);
+                        previous = id;
+                    }
+                    count += run.count;
+                    if (run.next()) {
+                        heads.add(run);
+                    }
+                }
+
+                tableOutput.writeLong(key);
+                tableOutput.writeLong(position);
+                tableOutput.writeInt(count);
+                records++;
+            }
+            while (partition <= partitions) {
+                directory[partition++] = records;
+            }
+        } finally {
+            for (PostingsRun run : runs) {
+                run.close();
+            }
+        }
+        return directory;
+    }
+
+    private static int compareGrams(final long a, final long b, final int partitions) {
+        final int byPartition = Integer.compare(MappedIndexResultSupplier.partition(a, partitions), MappedIndexResultSupplier.partition(b, partitions));
+        return byPartition != 0 ? byPartition : Long.compare(a, b);
+    }
+
+    private static Path createScratchFile(final List<Path> files, final String suffix) throws IOException {
+        final Path file = Files.createTempFile(TEMPORARY_PREFIX, suffix);
+        files.add(file);
+        return file;
+    }
+
+    private static void writeText(final DataOutputStream output, final String text) throws IOException {
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readText(final DataInputStream input) throws IOException {
+        final byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void addRow(final List<String> columns) {
+        add(columns.get(0), columns.size() > 1 ? columns.get(1) : null);
+    }
+
+    /**
+     * Buffered output keeping track of its position beyond 2 GB.
+     */
+    private static class IndexOutput extends OutputStream {
+        private final OutputStream stream;
+        private long position = 0;
+
+        private IndexOutput(final OutputStream stream) {
+            this.stream = new BufferedOutputStream(stream, 1 << 16);
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            stream.write(b);
+            position++;
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+            stream.write(bytes, offset, length);
+            position += length;
+        }
+
+        void writeLong(final long value) throws IOException {
+            for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+                write((int) (value >>> shift));
+            }
+        }
+
+        void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7f) != 0) {
+                write(value & 0x7f | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        void writeString(final String text) throws IOException {
+            final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            write(bytes);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            stream.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
+    }
+
+    /**
+     * Sorted run of entries being merged, positioned at its current entry.
+     */
+    private static class EntryRun implements Comparable<EntryRun>, Closeable {
+        private final DataInputStream input;
+        private final int index;
+        private String name;
+        private String value;
+        private String folded;
+
+        private EntryRun(final Path file, final int index) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+            this.index = index;
+        }
+
+        /**
+         * @return Whether the run moved on to another entry, rather than being exhausted
+         */
+        private boolean next() throws IOException {
+            try {
+                name = readText(input);
+            } catch (EOFException e) {
+                return false;
+            }
+            value = readText(input);
+            folded = NGrams.fold(name);
+            return true;
+        }
+
+        @Override
+        public int compareTo(final EntryRun other) {
+            final int byFolded = folded.compareTo(other.folded);
+            if (byFolded != 0) {
+                return byFolded;
+            }
+            final int byName = name.compareTo(other.name);
+            return byName != 0 ? byName : Integer.compare(index, other.index);
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+
+    /**
+     * Sorted run of postings being merged, positioned after the key and count of its current n-gram.
+     */
+    private static class PostingsRun implements Comparable<PostingsRun>, Closeable {
+        private final DataInputStream input;
+        private final int index;
+        private final int partitions;
+        private long key;
+        private int count;
+
+        private PostingsRun(final Path file, final int index, final int partitions) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+            this.index = index;
+            this.partitions = partitions;
+        }
+
+        /**
+         * @return Whether the run moved on to another n-gram, rather than being exhausted
+         */
+        private boolean next() throws IOException {
+            try {
+                key = input.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            count = input.readInt();
+            return true;
+        }
+
+        @Override
+        public int compareTo(final PostingsRun other) {
+            final int byGram = compareGrams(key, other.key, partitions);
+            return byGram != 0 ? byGram : Integer.compare(index, other.index);
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+}
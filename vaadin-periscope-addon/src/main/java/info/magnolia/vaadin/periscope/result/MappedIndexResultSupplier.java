@@ -0,0 +1,268 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.result;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Base class for suppliers searching catalogs too large for the heap, by case-insensitive substring. The catalog is
+ * read from an index file written by {@link MappedIndexBuilder} through memory mappings, so the operating system pages
+ * in only what queries touch and the heap holds little more than the results.
+ * <p>
+ * The index works like the one of {@link IndexedResultSupplier}: entries are sorted by case-folded name, so prefix
+ * matches are found by binary search, and 1- to 3-grams point to the entries containing them, as sorted, delta-encoded
+ * varint postings. The n-gram table is split into hash partitions of sorted fixed-size records, found by binary search
+ * as well.
+ * <p>
+ * File layout (big-endian): header, entries (name and value as varint-prefixed UTF-8), entry offsets ({@code long} per
+ * entry), postings, partition directory ({@code long} per partition, plus one), n-gram table (key {@code long},
+ * postings offset {@code long}, postings count {@code int}).
+ */
+public abstract class MappedIndexResultSupplier implements ResultSupplier, Closeable {
+
+    static final int MAGIC = 0x50494458;
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 2 * Integer.BYTES + 2 * Integer.BYTES + 4 * Long.BYTES;
+    static final int TABLE_RECORD_SIZE = 2 * Long.BYTES + Integer.BYTES;
+
+    private static final int DEFAULT_LIMIT = 50;
+
+    private final MappedFile file;
+    private final int limit;
+    private final int entryCount;
+    private final int partitions;
+    private final long entryOffsetsPosition;
+    private final long directoryPosition;
+    private final long tablePosition;
+
+    protected MappedIndexResultSupplier(final Path indexFile) throws IOException {
+        this(indexFile, DEFAULT_LIMIT);
+    }
+
+    /**
+     * @param limit Maximum number of results of an unpaged search; paged searches go as far as they ask
+     */
+    protected MappedIndexResultSupplier(final Path indexFile, final int limit) throws IOException {
+        this.file = new MappedFile(indexFile);
+        this.limit = limit;
+
+        if (file.size() < HEADER_SIZE || file.getInt(0) != MAGIC || file.getInt(4) != FORMAT_VERSION) {
+            file.close();
+            throw new IOException("Not a supported index file: " + indexFile);
+        }
+        entryCount = file.getInt(8);
+        partitions = file.getInt(12);
+        entryOffsetsPosition = file.getLong(16);
+        directoryPosition = file.getLong(32);
+        tablePosition = file.getLong(40);
+    }
+
+    /**
+     * Create the result for a matching entry.
+     */
+    protected abstract Result createResult(String name, String value, String query);
+
+    /**
+     * Create the result for a matching entry of a search with the given context, e.g. to reuse the context's
+     * {@link QueryContext#getHighlighter() highlighter} of the query; by default the context is ignored.
+     *
+     * @param context Context of the search, carrying a highlighter of the query
+     */
+    protected Result createResult(final String name, final String value, final String query, final QueryContext context) {
+        return createResult(name, value, query);
+    }
+
+    @Override
+    public List<Result> search(final String query) throws SearchFailedException {
+        return search(query, QueryContext.unbounded());
+    }
+
+    @Override
+    public List<Result> search(final String query, final QueryContext context) throws SearchFailedException {
+        return results(find(query, limit), 0, query, context);
+    }
+
+    /**
+     * Search only as many matches as the page needs, even beyond the limit of an unpaged search.
+     */
+    @Override
+    public List<Result> search(final String query, final QueryContext context, final int offset, final int limit) throws SearchFailedException {
+        return results(find(query, (int) Math.min((long) offset + limit, Integer.MAX_VALUE)), offset, query, context);
+    }
+
+    private List<Result> results(final int[] ids, final int offset, final String query, final QueryContext context) {
+        final QueryContext highlighting = context.withHighlighterOf(query);
+        final List<Result> results = new ArrayList<>(Math.max(0, ids.length - offset));
+        for (int i = offset; i < ids.length; i++) {
+            final long[] position = {entryPosition(ids[i])};
+            final String name = file.getString(position);
+            results.add(createResult(name, file.getString(position), query, highlighting));
+        }
+        return results;
+    }
+
+    /**
+     * @return Number of entries in the catalog
+     */
+    public int size() {
+        return entryCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * @return Ids (positions in name order) of at most {@code max} matching entries, prefix matches first
+     */
+    int[] find(final String query, final int max) {
+        final String foldedQuery = NGrams.fold(query);
+        final int[] found = new int[Math.min(max, entryCount)];
+        int count = 0;
+
+        final int prefixStart = lowerBound(foldedQuery);
+        final int prefixEnd = prefixEnd(foldedQuery, prefixStart);
+        for (int id = prefixStart; id < prefixEnd && count < found.length; id++) {
+            found[count++] = id;
+        }
+
+        if (count < found.length && !foldedQuery.isEmpty()) {
+            final long[] postings = rarestPostings(foldedQuery);
+            if (postings != null) {
+                final long[] position = {postings[0]};
+                int id = 0;
+                for (int i = 0; i < postings[1] && count < found.length; i++) {
+                    id += file.getVarInt(position);
+                    if ((id < prefixStart || id >= prefixEnd) && foldedName(id).contains(foldedQuery)) {
+                        found[count++] = id;
+                    }
+                }
+            }
+        }
+        return count == found.length ? found : Arrays.copyOf(found, count);
+    }
+
+    /**
+     * @return Position and length of the postings of the query's rarest n-gram, or {@code null} if one is missing
+     */
+    private long[] rarestPostings(final String foldedQuery) {
+        final int gram = Math.min(NGrams.MAX_GRAM, foldedQuery.length());
+        long[] rarest = null;
+        for (int start = 0; start + gram <= foldedQuery.length(); start++) {
+            final long record = findRecord(NGrams.key(foldedQuery, start, gram));
+            if (record < 0) {
+                return null;
+            }
+            final int postingsCount = file.getInt(record + 2 * Long.BYTES);
+            if (rarest == null || postingsCount < rarest[1]) {
+                rarest = new long[]{file.getLong(record + Long.BYTES), postingsCount};
+            }
+        }
+        return rarest;
+    }
+
+    /**
+     * @return Position of the table record of the given n-gram, or -1
+     */
+    private long findRecord(final long key) {
+        final int partition = partition(key, partitions);
+        long low = file.getLong(directoryPosition + (long) partition * Long.BYTES);
+        long high = file.getLong(directoryPosition + (long) (partition + 1) * Long.BYTES) - 1;
+        while (low <= high) {
+            final long middle = (low + high) >>> 1;
+            final long record = tablePosition + middle * TABLE_RECORD_SIZE;
+            final long middleKey = file.getLong(record);
+            if (middleKey < key) {
+                low = middle + 1;
+            } else if (middleKey > key) {
+                high = middle - 1;
+            } else {
+                return record;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return First id whose folded name is not less than the given one
+     */
+    private int lowerBound(final String folded) {
+        int low = 0;
+        int high = entryCount;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (foldedName(middle).compareTo(folded) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return First id from {@code start} on whose folded name does not start with the given prefix
+     */
+    private int prefixEnd(final String prefix, final int start) {
+        int low = start;
+        int high = entryCount;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (foldedName(middle).startsWith(prefix)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private String foldedName(final int id) {
+        return NGrams.fold(file.getString(new long[]{entryPosition(id)}));
+    }
+
+    private long entryPosition(final int id) {
+        return file.getLong(entryOffsetsPosition + (long) id * Long.BYTES);
+    }
+
+    static int partition(final long key, final int partitions) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 33) % partitions;
+    }
+}
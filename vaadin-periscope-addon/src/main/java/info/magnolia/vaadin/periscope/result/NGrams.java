@@ -0,0 +1,30 @@
+package info.magnolia.vaadin.periscope.result;
+
+import java.util.Locale;
+
+/**
+ * Case folding and n-gram keys shared by the substring indexes of {@link IndexedResultSupplier} and
+ * {@link MappedIndexResultSupplier}.
+ */
+final class NGrams {
+
+    static final int MAX_GRAM = 3;
+
+    private NGrams() {
+    }
+
+    /**
+     * Pack an n-gram of up to three chars, with its length, into a long.
+     */
+    static long key(final String text, final int start, final int gram) {
+        long key = gram;
+        for (int i = 0; i < gram; i++) {
+            key = key << 16 | text.charAt(start + i);
+        }
+        return key;
+    }
+
+    static String fold(final String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.result;
+
+import java.util.Optional;
+
+/**
+ * Marks a supplier with monotonic prefix semantics: every result for a query which extends another query is also a
+ * result for that shorter query, as with substring matching. A {@link CachingResultSupplier} or
+ * {@link CachingAsyncResultSupplier} can then answer a refined query by narrowing the cached results of a shorter one
+ * instead of searching again.
+ * <p>
+ * Only suppliers which return all matches (rather than, say, the first ten) qualify, as narrowing cannot bring back
+ * results which were cut off.
+ */
+public interface NarrowingSupplier {
+
+    /**
+     * @param result Result found for a prefix of the query
+     * @return The result as it should be presented for the refined query (e.g. with updated highlighting), or empty if
+     * it does not match anymore
+     */
+    Optional<Result> narrow(Result result, String query);
+}
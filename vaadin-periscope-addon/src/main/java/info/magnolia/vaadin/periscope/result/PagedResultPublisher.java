@@ -0,0 +1,163 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.result;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the pages of a paged backend as chunks, fetching a page only once the subscriber requested it, so a slow
+ * subscriber holds back the backend instead of results piling up.
+ */
+public class PagedResultPublisher implements ResultPublisher {
+
+    /**
+     * Fetches one page of results.
+     */
+    @FunctionalInterface
+    public interface PageLoader {
+
+        /**
+         * @param page Zero-based page number
+         * @return Results of the page; empty once there are no more
+         */
+        List<Result> load(int page) throws Exception;
+    }
+
+    private final PageLoader loader;
+    private final QueryContext context;
+    private final Executor executor;
+
+    public PagedResultPublisher(final PageLoader loader, final QueryContext context) {
+        this(loader, context, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param context Stops fetching pages once cancelled or past its deadline, signalling a
+     * {@link SearchCancelledException} to a subscriber which did not cancel itself
+     * @param executor Runs the page loader
+     */
+    public PagedResultPublisher(final PageLoader loader, final QueryContext context, final Executor executor) {
+        this.loader = loader;
+        this.context = context;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(final ResultSubscriber subscriber) {
+        final PagedSubscription subscription = new PagedSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    private class PagedSubscription implements ResultSubscription {
+
+        private final ResultSubscriber subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+        private volatile boolean done = false;
+        private int nextPage = 0;
+
+        private PagedSubscription(final ResultSubscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(final long chunks) {
+            if (chunks <= 0 || done) {
+                return;
+            }
+            demand.accumulateAndGet(chunks, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            if (pendingDrains.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+        }
+
+        /**
+         * Fetch and send pages while there is demand; runs on one thread at a time.
+         */
+        private void drain() {
+            int drains = 1;
+            do {
+                while (!done && demand.get() > 0) {
+                    if (context.isCancelled()) {
+                        cancelled();
+                        return;
+                    }
+
+                    final List<Result> page;
+                    try {
+                        page = loader.load(nextPage++);
+                    } catch (Exception e) {
+                        done = true;
+                        subscriber.onError(e);
+                        return;
+                    }
+
+                    if (done) {
+                        return;
+                    }
+                    if (context.isCancelled()) {
+                        cancelled();
+                        return;
+                    }
+                    if (page == null || page.isEmpty()) {
+                        done = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                    demand.decrementAndGet();
+                    subscriber.onNext(page);
+                }
+                drains = pendingDrains.addAndGet(-drains);
+            } while (drains != 0);
+        }
+
+        /**
+         * Signal that the context was cancelled or passed its deadline. Reaching the deadline does not run the token's
+         * callbacks, so without this signal the subscriber would wait forever.
+         */
+        private void cancelled() {
+            done = true;
+            subscriber.onError(new SearchCancelledException());
+        }
+    }
+}
@@ -41,4 +41,12 @@ public interface PeriscopeSupplier<T> {
     String getTitle();
 
     T search(String query) throws SearchFailedException;
+
+    /**
+     * Search with a context telling when results are no longer needed. Suppliers doing expensive work should override
+     * this and stop once the context is cancelled (see {@link SupplierUtil#checkCancelled(QueryContext)}).
+     */
+    default T search(String query, QueryContext context) throws SearchFailedException {
+        return search(query);
+    }
 }
@@ -0,0 +1,156 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.result;
+
+import info.magnolia.vaadin.periscope.tracing.Span;
+
+import java.util.Optional;
+
+/**
+ * Context of a single search: a {@link CancellationToken} signalling the query was superseded, a deadline after
+ * which results are not awaited anymore, the {@link Span} tracing the search and possibly a {@link Highlighter} of
+ * the query, compiled once for all suppliers.
+ */
+public class QueryContext {
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final CancellationToken token;
+    private final long deadline;
+    private final Span span;
+    private final Highlighter highlighter;
+
+    /**
+     * @param deadline Point in time (as of {@link System#currentTimeMillis()}) after which results are not awaited
+     */
+    public QueryContext(final CancellationToken token, final long deadline) {
+        this(token, deadline, Span.noop());
+    }
+
+    /**
+     * @param span Span of the search, below which suppliers may record their own, e.g. for remote calls
+     */
+    public QueryContext(final CancellationToken token, final long deadline, final Span span) {
+        this(token, deadline, span, null);
+    }
+
+    private QueryContext(final CancellationToken token, final long deadline, final Span span, final Highlighter highlighter) {
+        this.token = token;
+        this.deadline = deadline;
+        this.span = span;
+        this.highlighter = highlighter;
+    }
+
+    /**
+     * @return Context which is never cancelled and never expires, e.g. for searches outside of a {@code Periscope}
+     */
+    public static QueryContext unbounded() {
+        return new QueryContext(new CancellationToken(), NO_DEADLINE);
+    }
+
+    public CancellationToken getToken() {
+        return token;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public Span getSpan() {
+        return span;
+    }
+
+    /**
+     * @return Highlighter of the query, to be reused for all of its results
+     * @see SupplierUtil#findMatches(String, String, QueryContext)
+     */
+    public Optional<Highlighter> getHighlighter() {
+        return Optional.ofNullable(highlighter);
+    }
+
+    public long getRemainingMillis() {
+        if (deadline == NO_DEADLINE) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, deadline - System.currentTimeMillis());
+    }
+
+    public boolean isExpired() {
+        return deadline != NO_DEADLINE && System.currentTimeMillis() >= deadline;
+    }
+
+    /**
+     * @return Whether the search was cancelled or is past its deadline, so carrying on is pointless
+     */
+    public boolean isCancelled() {
+        return token.isCancelled() || isExpired();
+    }
+
+    /**
+     * @return Context of a single supplier, which can be cancelled without affecting others and whose deadline is
+     * capped at the given one
+     */
+    public QueryContext forSupplier(final long supplierDeadline) {
+        return new QueryContext(token.newChild(), Math.min(deadline, supplierDeadline), span, highlighter);
+    }
+
+    /**
+     * @return Same context, traced by the given span
+     */
+    public QueryContext withSpan(final Span span) {
+        return new QueryContext(token, deadline, span, highlighter);
+    }
+
+    /**
+     * @return Same context with another deadline, e.g. for fetching more results of the query later on
+     */
+    public QueryContext withDeadline(final long deadline) {
+        return new QueryContext(token, deadline, span, highlighter);
+    }
+
+    /**
+     * @return Same context carrying the given highlighter of the query
+     */
+    public QueryContext withHighlighter(final Highlighter highlighter) {
+        return new QueryContext(token, deadline, span, highlighter);
+    }
+
+    /**
+     * @return This context if it carries a highlighter, otherwise the same context with a highlighter of the given
+     * query, e.g. to compile it once for all results of a search
+     */
+    public QueryContext withHighlighterOf(final String query) {
+        return highlighter != null ? this : withHighlighter(Highlighter.of(query));
+    }
+}
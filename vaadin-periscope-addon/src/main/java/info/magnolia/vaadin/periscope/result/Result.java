@@ -35,22 +35,30 @@ package info.magnolia.vaadin.periscope.result;
 
 import java.util.Optional;
 
-import org.apache.commons.lang3.StringEscapeUtils;
 import org.jsoup.Jsoup;
 import org.jsoup.safety.Whitelist;
 
 /**
  * Periscope result containing a text, an action and optionally an icon.
+ * <p>
+ * The text is either plain text along with the offsets of the parts matching the query, which renderers highlight
+ * and escape themselves, or HTML already highlighted by the supplier. Ids not given explicitly are derived from the
+ * text when first needed, which for HTML takes parsing it.
  */
 public class Result {
 
-    private final String htmlText;
+    private static final int[] NO_MATCHES = new int[0];
+
+    private final String text;
+    private final int[] matches;
     private final Runnable action;
     private final String icon;
-    private final String id;
+
+    private String htmlText;
+    private String id;
 
     public Result(String htmlText, final Runnable action) {
-        this(htmlText, action, Jsoup.clean(htmlText, Whitelist.none()), null);
+        this(htmlText, action, null, null);
     }
 
     public Result(String htmlText, final Runnable action, String id) {
@@ -58,16 +66,66 @@ public class Result {
     }
 
     public Result(String htmlText, Runnable action, String id, String icon) {
+        this(null, null, htmlText, action, id, icon);
+    }
+
+    /**
+     * Create a result of plain text, which renderers escape and highlight themselves. A factory rather than a
+     * constructor, as an overload taking {@code int[]} in place of the {@link Runnable} of the HTML ones would make
+     * calls with {@code null} arguments ambiguous.
+     *
+     * @param text Plain text, identifying the result as well
+     * @param matches Start and end offsets of the parts of the text to highlight, in pairs and ascending order, e.g.
+     * from {@link SupplierUtil#findMatches(String, String, QueryContext)}; not copied, so not to be modified afterwards
+     */
+    public static Result ofText(String text, int[] matches, Runnable action) {
+        return ofText(text, matches, action, text, null);
+    }
+
+    /**
+     * @param text Plain text
+     * @param matches Start and end offsets of the parts of the text to highlight, in pairs and ascending order, e.g.
+     * from {@link SupplierUtil#findMatches(String, String, QueryContext)}; not copied, so not to be modified afterwards
+     * @see #ofText(String, int[], Runnable)
+     */
+    public static Result ofText(String text, int[] matches, Runnable action, String id, String icon) {
+        return new Result(text, matches != null ? matches : NO_MATCHES, null, action, id, icon);
+    }
+
+    private Result(String text, int[] matches, String htmlText, Runnable action, String id, String icon) {
+        this.text = text;
+        this.matches = matches;
         this.htmlText = htmlText;
         this.action = action;
-        this.icon = icon;
         this.id = id;
+        this.icon = icon;
     }
 
+    /**
+     * @return Text as HTML, highlighted and escaped on first use for results of plain text
+     */
     public String getHtmlText() {
+        if (htmlText == null) {
+            htmlText = Highlighter.toHtml(text, matches);
+        }
         return htmlText;
     }
 
+    /**
+     * @return Plain text, or empty if the result was created from HTML
+     */
+    public Optional<String> getText() {
+        return Optional.ofNullable(text);
+    }
+
+    /**
+     * @return Start and end offsets of the parts of the plain text to highlight, in pairs; not to be modified, and
+     * empty if the result was created from HTML
+     */
+    public Optional<int[]> getMatches() {
+        return Optional.ofNullable(matches);
+    }
+
     public Optional<String> getIcon() {
         return Optional.ofNullable(icon);
     }
@@ -77,6 +135,9 @@ public class Result {
     }
 
     public String getId() {
+        if (id == null) {
+            id = text != null ? text : Jsoup.clean(htmlText, Whitelist.none());
+        }
         return id;
     }
 }
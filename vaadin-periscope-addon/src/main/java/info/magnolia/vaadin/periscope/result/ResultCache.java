@@ -0,0 +1,114 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.result;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * Size-bounded cache of search results by query, evicting the least recently used entry and dropping entries older
+ * than a time to live. Thread-safe.
+ */
+class ResultCache<V> {
+
+    private final long timeToLive;
+    private final LongSupplier clock;
+    private final Map<String, Entry<V>> entries;
+
+    ResultCache(final long timeToLive, final int maxEntries, final LongSupplier clock) {
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    synchronized Optional<V> get(final String query) {
+        final Entry<V> entry = entries.get(query);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (clock.getAsLong() - entry.created > timeToLive) {
+            entries.remove(query);
+            return Optional.empty();
+        }
+        return Optional.of(entry.value);
+    }
+
+    /**
+     * @return Value cached for the longest proper prefix of the query which has one
+     */
+    synchronized Optional<V> getForPrefix(final String query) {
+        for (int end = query.length() - 1; end > 0; end--) {
+            final Optional<V> value = get(query.substring(0, end));
+            if (value.isPresent()) {
+                return value;
+            }
+        }
+        return Optional.empty();
+    }
+
+    synchronized void put(final String query, final V value) {
+        entries.put(query, new Entry<>(value, clock.getAsLong()));
+    }
+
+    /**
+     * Remove the entry of the query if it (still) holds the given value.
+     */
+    synchronized void remove(final String query, final V value) {
+        final Entry<V> entry = entries.get(query);
+        if (entry != null && entry.value == value) {
+            entries.remove(query);
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long created;
+
+        private Entry(final V value, final long created) {
+            this.value = value;
+            this.created = created;
+        }
+    }
+}
@@ -39,4 +39,17 @@ import java.util.List;
  * Supplier of {@link Result}s (duh).
  */
 public interface ResultSupplier extends PeriscopeSupplier<List<Result>> {
+
+    /**
+     * Search a single page of results. By default, the page is cut out of the full result list, so every "show more"
+     * runs the whole search again: suppliers whose backend pages natively or which can stop early should override this,
+     * and expensive ones which cannot should be wrapped in a {@link CachingResultSupplier}, which searches once per
+     * query.
+     *
+     * @param offset Number of results to skip
+     * @param limit Maximum number of results to return
+     */
+    default List<Result> search(String query, QueryContext context, int offset, int limit) throws SearchFailedException {
+        return SupplierUtil.page(search(query, context), offset, limit);
+    }
 }
@@ -0,0 +1,97 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.result;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous supplier which streams its results in chunks, so a backend's first hits can be shown before the last
+ * ones arrived. A {@code Periscope} renders the chunks as they come, requesting the next one once the previous one is
+ * rendered; elsewhere, the supplier can be used like any {@link AsyncResultSupplier}, collecting all chunks.
+ *
+ * @see PagedResultPublisher
+ */
+public interface StreamingResultSupplier extends AsyncResultSupplier {
+
+    /**
+     * @return Publisher of the results for the query; should stop producing once the context is cancelled or past its
+     * deadline and then signal a {@link SearchCancelledException}, as reaching the deadline cancels nothing by itself
+     */
+    ResultPublisher stream(String query, QueryContext context);
+
+    @Override
+    default CompletableFuture<List<Result>> search(String query) throws SearchFailedException {
+        return search(query, QueryContext.unbounded());
+    }
+
+    /**
+     * Collect all chunks of the {@link #stream(String, QueryContext) stream}; cancelling the future cancels the
+     * subscription.
+     */
+    @Override
+    default CompletableFuture<List<Result>> search(String query, QueryContext context) throws SearchFailedException {
+        final CompletableFuture<List<Result>> collected = new CompletableFuture<>();
+        stream(query, context).subscribe(new ResultSubscriber() {
+            private final List<Result> results = new ArrayList<>();
+
+            @Override
+            public void onSubscribe(final ResultSubscription subscription) {
+                collected.whenComplete((found, failure) -> {
+                    if (collected.isCancelled()) {
+                        subscription.cancel();
+                    }
+                });
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(final List<Result> chunk) {
+                results.addAll(chunk);
+            }
+
+            @Override
+            public void onError(final Throwable failure) {
+                collected.completeExceptionally(failure);
+            }
+
+            @Override
+            public void onComplete() {
+                collected.complete(results);
+            }
+        });
+        return collected;
+    }
+}
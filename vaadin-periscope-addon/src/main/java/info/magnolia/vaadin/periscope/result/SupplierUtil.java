@@ -33,15 +33,14 @@
  */
 package info.magnolia.vaadin.periscope.result;
 
-import static java.util.stream.Collectors.toList;
-
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
-
-import org.apache.commons.lang3.StringUtils;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
 
 /**
  * Convenience methods for result suppliers.
@@ -49,50 +48,118 @@ import org.apache.commons.lang3.StringUtils;
 public abstract class SupplierUtil {
 
     /**
-     * Highlight (using HTML tags) all occurrences of a query string, ignoring case.
+     * Highlight (using HTML tags) all occurrences of a query string, ignoring case. The text is HTML-escaped, so it
+     * must be plain text: markup in it shows up literally instead of being rendered. The query is compiled on every
+     * call; to highlight many results, use {@link #highlight(String, String, QueryContext)}.
      *
-     * @param text Text in which parts should be highlighted
+     * @param text Plain text in which parts should be highlighted; it gets escaped
      * @param query Parts to highlight
      * @return Highlighted string
+     * @see Highlighter
      */
     public static String highlight(final String text, final String query) {
-        if (StringUtils.isBlank(query)) {
-            return text;
-        }
+        return Highlighter.of(query).highlight(text);
+    }
 
-        final List<Integer> startIndices = allIndicesOf(text, query);
-        final List<Integer> endIndices = startIndices.stream().map(i -> i + query.length()).collect(toList());
+    /**
+     * Like {@link #highlight(String, String)}, HTML-escaping the text, but with the highlighter the context carries
+     * for the query, so it is compiled only once for all results.
+     */
+    public static String highlight(final String text, final String query, final QueryContext context) {
+        return highlighter(query, context).highlight(text);
+    }
 
-        // we run back to front to not mess up indices when inserting tags
-        Collections.reverse(startIndices);
-        Collections.reverse(endIndices);
-        Queue<Integer> startQueue = new LinkedList<>(startIndices);
-        Queue<Integer> endQueue = new LinkedList<>(endIndices);
+    /**
+     * Find all occurrences of a query string, ignoring case, e.g. for a {@link Result} of plain text which gets
+     * highlighted when rendered. The query is compiled on every call; for many results, use
+     * {@link #findMatches(String, String, QueryContext)}.
+     *
+     * @return Start and end offsets of the occurrences, in pairs
+     * @see Highlighter#findMatches(String)
+     */
+    public static int[] findMatches(final String text, final String query) {
+        return Highlighter.of(query).findMatches(text);
+    }
 
-        StringBuilder highlighted = new StringBuilder(text);
-        while (!startQueue.isEmpty() || !endQueue.isEmpty()) {
-            final Integer startCandidate = startQueue.peek();
-            final Integer endCandidate = endQueue.peek();
+    /**
+     * Like {@link #findMatches(String, String)}, but with the highlighter the context carries for the query, so it is
+     * compiled only once for all results.
+     */
+    public static int[] findMatches(final String text, final String query, final QueryContext context) {
+        return highlighter(query, context).findMatches(text);
+    }
 
-            if (startCandidate != null && (endCandidate == null || startCandidate > endCandidate)) {
-                highlighted.insert(startCandidate, "<strong>");
-                startQueue.poll();
-            } else {
-                highlighted.insert(endCandidate, "</strong>");
-                endQueue.poll();
-            }
-        }
+    /**
+     * @return New list of the results from {@code offset} on, at most {@code limit} of them, so callers may sort it
+     * without affecting the given one
+     */
+    public static List<Result> page(final List<Result> results, final int offset, final int limit) {
+        final int from = Math.min(offset, results.size());
+        return new ArrayList<>(results.subList(from, from + Math.min(limit, results.size() - from)));
+    }
 
-        return highlighted.toString();
+    /**
+     * @return Whether the search of the given context was cancelled or is past its deadline
+     */
+    public static boolean isCancelled(final QueryContext context) {
+        return context.isCancelled();
     }
 
-    private static List<Integer> allIndicesOf(final String text, final String query) {
-        final List<Integer> indices = new ArrayList<>();
-        int index = StringUtils.indexOfIgnoreCase(text, query);
-        while (index >= 0) {
-            indices.add(index);
-            index = StringUtils.indexOfIgnoreCase(text, query, index + 1);
+    /**
+     * Stop searching by throwing if the given context was cancelled or is past its deadline.
+     *
+     * @throws SearchCancelledException if results are no longer needed
+     */
+    public static void checkCancelled(final QueryContext context) throws SearchCancelledException {
+        if (context.isCancelled()) {
+            throw new SearchCancelledException();
         }
-        return indices;
+    }
+
+    /**
+     * Like {@link CompletableFuture#supplyAsync(Supplier)}, but interrupts the supplying thread as soon as the given
+     * context is cancelled, so blocking work actually stops.
+     */
+    public static <T> CompletableFuture<T> supplyAsync(final Supplier<T> supplier, final QueryContext context) {
+        return supplyAsync(supplier, context, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Like {@link CompletableFuture#supplyAsync(Supplier, Executor)}, but interrupts the supplying thread as soon as
+     * the given context is cancelled, so blocking work actually stops.
+     */
+    public static <T> CompletableFuture<T> supplyAsync(final Supplier<T> supplier, final QueryContext context, final Executor executor) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final FutureTask<T> task = new FutureTask<T>(() -> {
+            checkCancelled(context);
+            return supplier.get();
+        }) {
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    future.completeExceptionally(new SearchCancelledException());
+                    return;
+                }
+                try {
+                    future.complete(get());
+                } catch (ExecutionException e) {
+                    future.completeExceptionally(e.getCause());
+                } catch (InterruptedException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        };
+
+        context.getToken().onCancel(() -> task.cancel(true));
+        future.whenComplete((result, failure) -> task.cancel(true));
+        executor.execute(task);
+        return future;
+    }
+
+    /**
+     * @return Highlighter the context carries for the query, or a new one if it carries none
+     */
+    private static Highlighter highlighter(final String query, final QueryContext context) {
+        return context.getHighlighter().orElseGet(() -> Highlighter.of(query));
     }
 }
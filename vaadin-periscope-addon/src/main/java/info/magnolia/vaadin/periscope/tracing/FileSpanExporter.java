@@ -0,0 +1,202 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.tracing;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link SpanExporter} appending spans to a local file, one JSON object per line, to be replayed and analyzed offline.
+ * Spans are queued and written by a background thread; when the queue is full they are dropped rather than holding
+ * up the UI.
+ * <p>
+ * Each line holds {@code trace}, {@code span} and {@code parent} ids as hex strings ({@code parent} is omitted for the
+ * root span of a trace), the {@code name}, {@code start} in microseconds since the epoch, {@code duration} in
+ * microseconds and the {@code attributes}.
+ */
+public class FileSpanExporter implements SpanExporter, Closeable {
+
+    private static final int DEFAULT_CAPACITY = 4096;
+    private static final long POLL_TIMEOUT = 200;
+
+    private final BlockingQueue<Span> queue;
+    private final Writer writer;
+    private final Thread thread;
+    private final AtomicLong droppedSpans = new AtomicLong();
+    private volatile boolean closed = false;
+
+    public FileSpanExporter(final Path file) {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    public FileSpanExporter(final Path file, final int capacity) {
+        try {
+            this.writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open span file " + file, e);
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+
+        thread = new Thread(this::writeContinuously, "periscope-span-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void export(final Span span) {
+        if (closed || !queue.offer(span)) {
+            droppedSpans.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return Number of spans which were discarded because the queue was full, the exporter closed or writing failed
+     */
+    public long getDroppedSpans() {
+        return droppedSpans.get();
+    }
+
+    /**
+     * Write all queued spans and close the file.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer.close();
+    }
+
+    private void writeContinuously() {
+        while (!closed || !queue.isEmpty()) {
+            try {
+                final Span span = queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+                if (span == null) {
+                    continue;
+                }
+                writer.write(toJson(span));
+                writer.write('\n');
+                if (queue.isEmpty()) {
+                    writer.flush();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                droppedSpans.incrementAndGet();
+            }
+        }
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            // spans lost along with the file; nothing to be done about it
+        }
+    }
+
+    static String toJson(final Span span) {
+        final StringBuilder json = new StringBuilder(256);
+        json.append("{\"trace\":\"").append(Long.toHexString(span.getTraceId()));
+        json.append("\",\"span\":\"").append(Long.toHexString(span.getSpanId())).append('"');
+        if (span.getParentId() != 0) {
+            json.append(",\"parent\":\"").append(Long.toHexString(span.getParentId())).append('"');
+        }
+        json.append(",\"name\":");
+        appendString(json, span.getName());
+        json.append(",\"start\":").append(span.getStartMicros());
+        json.append(",\"duration\":").append(span.getDurationMicros());
+        json.append(",\"attributes\":{");
+        boolean first = true;
+        for (Map.Entry<String, Object> attribute : span.getAttributes().entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            appendString(json, attribute.getKey());
+            json.append(':');
+            final Object value = attribute.getValue();
+            if (value instanceof Boolean || value instanceof Number && Double.isFinite(((Number) value).doubleValue())) {
+                json.append(value);
+            } else {
+                appendString(json, String.valueOf(value));
+            }
+        }
+        return json.append("}}").toString();
+    }
+
+    private static void appendString(final StringBuilder json, final String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.tracing;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timed operation within the trace of a single query, e.g. the search of one supplier. Spans form a tree below the
+ * root span of a query; each one is exported once it is {@link #end() ended}.
+ * <p>
+ * Spans of a {@link Tracer#noop() no-op tracer} record nothing, so instrumented code need not check whether tracing
+ * is enabled.
+ */
+public final class Span {
+
+    private static final Span NOOP = new Span(null, 0, 0, 0, "noop", 0);
+
+    private final Tracer tracer;
+    private final long traceId;
+    private final long spanId;
+    private final long parentId;
+    private final String name;
+    private final long startNanos;
+    private final AtomicLong endNanos = new AtomicLong();
+    private final Map<String, Object> attributes = new LinkedHashMap<>();
+
+    Span(final Tracer tracer, final long traceId, final long spanId, final long parentId, final String name, final long startNanos) {
+        this.tracer = tracer;
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentId = parentId;
+        this.name = name;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * @return Span which records nothing
+     */
+    public static Span noop() {
+        return NOOP;
+    }
+
+    /**
+     * Start a span below this one, starting now.
+     */
+    public Span child(final String name) {
+        return child(name, System.nanoTime());
+    }
+
+    /**
+     * Start a span below this one, e.g. for an operation which started before it could be traced.
+     *
+     * @param startNanos Start as of {@link System#nanoTime()}
+     */
+    public Span child(final String name, final long startNanos) {
+        if (tracer == null) {
+            return this;
+        }
+        return new Span(tracer, traceId, tracer.newId(), spanId, name, startNanos);
+    }
+
+    /**
+     * @param value Number, boolean or anything else recorded as its string representation; ignored once the span ended
+     * @return This span, for chaining
+     */
+    public Span attribute(final String key, final Object value) {
+        if (tracer != null && endNanos.get() == 0) {
+            synchronized (attributes) {
+                attributes.put(key, value);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Record the query, verbatim only if the tracer {@link Tracer#isRecordingQueries() records queries}; otherwise
+     * just its length.
+     *
+     * @return This span, for chaining
+     */
+    public Span query(final String query) {
+        if (tracer != null) {
+            attribute("queryLength", query.length());
+            if (tracer.isRecordingQueries()) {
+                attribute("query", query);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Record a failure: its message only if the tracer {@link Tracer#isRecordingQueries() records queries}, since it
+     * may quote the query, otherwise just its type.
+     *
+     * @return This span, for chaining
+     */
+    public Span error(final Throwable failure) {
+        if (tracer != null) {
+            attribute("error", tracer.isRecordingQueries() ? failure.toString() : failure.getClass().getName());
+        }
+        return this;
+    }
+
+    /**
+     * End the span now and export it, unless it was ended before.
+     */
+    public void end() {
+        if (tracer != null && endNanos.compareAndSet(0, Math.max(startNanos + 1, System.nanoTime()))) {
+            tracer.export(this);
+        }
+    }
+
+    public boolean isRecording() {
+        return tracer != null;
+    }
+
+    public long getTraceId() {
+        return traceId;
+    }
+
+    public long getSpanId() {
+        return spanId;
+    }
+
+    /**
+     * @return Id of the span this one is below, or zero for the root span of a trace
+     */
+    public long getParentId() {
+        return parentId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Start in microseconds since the epoch
+     */
+    public long getStartMicros() {
+        return tracer == null ? 0 : tracer.toEpochMicros(startNanos);
+    }
+
+    /**
+     * @return Duration in microseconds, or zero if the span did not end yet
+     */
+    public long getDurationMicros() {
+        final long end = endNanos.get();
+        return end == 0 ? 0 : (end - startNanos) / 1000;
+    }
+
+    public Map<String, Object> getAttributes() {
+        synchronized (attributes) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(attributes));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * This file Copyright (c) 2017 Magnolia International
+ * Ltd.  (http://www.magnolia-cms.com). All rights reserved.
+ *
+ *
+ * This file is dual-licensed under both the Magnolia
+ * Network Agreement and the GNU General Public License.
+ * You may elect to use one or the other of these licenses.
+ *
+ * This file is distributed in the hope that it will be
+ * useful, but AS-IS and WITHOUT ANY WARRANTY; without even the
+ * implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE, TITLE, or NONINFRINGEMENT.
+ * Redistribution, except as permitted by whichever of the GPL
+ * or MNA you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or
+ * modify this file under the terms of the GNU General
+ * Public License, Version 3, as published by the Free Software
+ * Foundation.  You should have received a copy of the GNU
+ * General Public License, Version 3 along with this program;
+ * if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * 2. For the Magnolia Network Agreement (MNA), this file
+ * and the accompanying materials are made available under the
+ * terms of the MNA which accompanies this distribution, and
+ * is available at http://www.magnolia-cms.com/mna.html
+ *
+ * Any modifications to this file must keep this entire header
+ * intact.
+ *
+ */
+package info.magnolia.vaadin.periscope.tracing;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the traces of queries, one root {@link Span} each, and hands finished spans to an exporter. Meant to be
+ * shared by all periscopes of an application.
+ * <p>
+ * What users type is personal data and exported traces tend to be kept and passed around, so unless enabled, spans
+ * only record the length of queries and the type of failures, whose messages may quote the query.
+ */
+public class Tracer {
+
+    private static final Tracer NOOP = new Tracer(span -> {
+    });
+
+    private final SpanExporter exporter;
+    private final boolean recordingQueries;
+    private final long baseNanos = System.nanoTime();
+    private final long baseEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+
+    public Tracer(final SpanExporter exporter) {
+        this(exporter, false);
+    }
+
+    /**
+     * @param recordingQueries Whether spans record queries and failure messages verbatim, e.g. while debugging
+     */
+    public Tracer(final SpanExporter exporter, final boolean recordingQueries) {
+        this.exporter = exporter;
+        this.recordingQueries = recordingQueries;
+    }
+
+    /**
+     * @return Tracer which records nothing
+     */
+    public static Tracer noop() {
+        return NOOP;
+    }
+
+    /**
+     * Start the root span of a new trace.
+     *
+     * @param startNanos Start as of {@link System#nanoTime()}, e.g. of the keystroke which led to a query
+     */
+    public Span startTrace(final String name, final long startNanos) {
+        if (this == NOOP) {
+            return Span.noop();
+        }
+        return new Span(this, newId(), newId(), 0, name, startNanos);
+    }
+
+    public boolean isRecordingQueries() {
+        return recordingQueries;
+    }
+
+    long newId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        return id;
+    }
+
+    long toEpochMicros(final long nanos) {
+        return baseEpochMicros + (nanos - baseNanos) / 1000;
+    }
+
+    void export(final Span span) {
+        exporter.export(span);
+    }
+}
@@ -0,0 +1,50 @@
+window.info_magnolia_vaadin_periscope_KeyboardSelection = function() {
+    var self = this;
+    var root = this.getElement(this.getParentId());
+    var selected = null;
+
+    function isSearchField(element) {
+        return element.classList && element.classList.contains("search-field");
+    }
+
+    function select(element) {
+        if (selected) {
+            selected.classList.remove("selected");
+        }
+        selected = element;
+        if (selected) {
+            selected.classList.add("selected");
+        }
+    }
+
+    root.addEventListener("keydown", function(event) {
+        if (!isSearchField(event.target)) {
+            return;
+        }
+
+        if (event.key === "ArrowDown" || event.key === "ArrowUp") {
+            var selectable = Array.prototype.slice.call(root.querySelectorAll(".result-entry, .show-more"));
+            if (selectable.length > 0) {
+                var position = selectable.indexOf(selected) + (event.key === "ArrowDown" ? 1 : -1);
+                select(selectable[Math.max(0, Math.min(selectable.length - 1, position))]);
+            }
+            event.preventDefault();
+        } else if (event.key === "Enter") {
+            var key = selected && root.contains(selected) ? selected.getAttribute("data-key") || selected.id : "";
+            self.enter(key);
+            event.preventDefault();
+        }
+    });
+
+    // a new query or leaving the search field starts over, as does any selection removed along with its results
+    root.addEventListener("input", function(event) {
+        if (isSearchField(event.target)) {
+            select(null);
+        }
+    });
+    root.addEventListener("focusout", function(event) {
+        if (isSearchField(event.target)) {
+            select(null);
+        }
+    });
+};
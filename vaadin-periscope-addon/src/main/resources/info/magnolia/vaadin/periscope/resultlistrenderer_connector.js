@@ -0,0 +1,131 @@
+window.info_magnolia_vaadin_periscope_ResultListRenderer = function() {
+    var self = this;
+    var root = this.getElement();
+    var sections = [];
+
+    var loading = createElement("async-loading");
+
+    function createElement(className, text) {
+        var element = document.createElement("div");
+        element.className = className;
+        if (text !== undefined) {
+            element.textContent = text;
+        }
+        return element;
+    }
+
+    function removeElement(element) {
+        if (element && element.parentNode) {
+            element.parentNode.removeChild(element);
+        }
+    }
+
+    function appendHighlighted(element, text, matches) {
+        var position = 0;
+        for (var i = 0; i + 1 < matches.length; i += 2) {
+            // substring swaps reversed bounds, so never step back over text already appended
+            var start = Math.max(position, matches[i]);
+            var end = Math.max(start, matches[i + 1]);
+            element.appendChild(document.createTextNode(text.substring(position, start)));
+            var strong = document.createElement("strong");
+            strong.textContent = text.substring(start, end);
+            element.appendChild(strong);
+            position = end;
+        }
+        element.appendChild(document.createTextNode(text.substring(position)));
+    }
+
+    root.addEventListener("click", function(event) {
+        var target = event.target;
+        while (target && target !== root) {
+            if (target.hasAttribute("data-key")) {
+                self.clicked(Number(target.getAttribute("data-key")));
+                return;
+            }
+            target = target.parentNode;
+        }
+    });
+
+    this.startSection = function(index, title) {
+        var section = {
+            element: createElement("result-section"),
+            notice: null,
+            showMore: null
+        };
+        section.element.appendChild(createElement("supplier-heading", title));
+
+        var next = index < sections.length ? sections[index].element : (loading.parentNode === root ? loading : null);
+        root.insertBefore(section.element, next);
+        sections.splice(index, 0, section);
+    };
+
+    this.removeSection = function(index) {
+        removeElement(sections[index].element);
+        sections.splice(index, 1);
+    };
+
+    this.truncate = function(count) {
+        sections.splice(count).forEach(function(section) {
+            removeElement(section.element);
+        });
+    };
+
+    this.appendEntries = function(index, entries) {
+        var section = sections[index];
+        var next = section.notice || section.showMore;
+        var fragment = document.createDocumentFragment();
+        entries.forEach(function(entry) {
+            var element = createElement("result-entry");
+            element.setAttribute("data-key", entry[0]);
+            element.appendChild(createElement("icon " + entry[2]));
+
+            var text = createElement("text");
+            if (entry.length > 3) {
+                appendHighlighted(text, entry[1], entry[3]);
+            } else {
+                text.innerHTML = entry[1];
+            }
+            element.appendChild(text);
+            fragment.appendChild(element);
+        });
+        section.element.insertBefore(fragment, next);
+    };
+
+    this.setNotice = function(index, notice) {
+        var section = sections[index];
+        if (!section.notice) {
+            section.notice = createElement("supplier-notice");
+            section.element.insertBefore(section.notice, section.showMore);
+        }
+        section.notice.textContent = notice;
+    };
+
+    this.setShowMore = function(index, key) {
+        var section = sections[index];
+        removeElement(section.showMore);
+        section.showMore = null;
+        if (key >= 0) {
+            section.showMore = createElement("show-more", "Show more");
+            section.showMore.setAttribute("data-key", key);
+            section.element.appendChild(section.showMore);
+        }
+    };
+
+    this.setLoading = function(visible) {
+        if (visible) {
+            root.appendChild(loading);
+        } else {
+            removeElement(loading);
+        }
+    };
+
+    this.clear = function() {
+        sections = [];
+        while (root.firstChild) {
+            root.removeChild(root.firstChild);
+        }
+    };
+
+    // calls made before this connector was created are not replayed, so ask for everything
+    self.ready();
+};
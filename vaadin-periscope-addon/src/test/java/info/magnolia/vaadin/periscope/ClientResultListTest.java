@@ -0,0 +1,78 @@
+package info.magnolia.vaadin.periscope;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import info.magnolia.vaadin.periscope.result.Result;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ClientResultListTest {
+
+    private final ClientResultList resultList = new ClientResultList();
+
+    private static List<Result> results(final String... ids) {
+        final List<Result> results = new ArrayList<>();
+        for (String id : ids) {
+            results.add(new Result(id, null, id));
+        }
+        return results;
+    }
+
+    @Test
+    public void selectsByKeyReportedFromBrowser() {
+        resultList.beginUpdate();
+        resultList.appendResults("Pages", results("a", "b"));
+        resultList.appendResults("Apps", results("c"));
+
+        assertEquals("a", resultList.getSelectedOrFirstResult().get().getId());
+        resultList.select("2");
+        assertEquals("c", resultList.getSelectedOrFirstResult().get().getId());
+
+        resultList.select("unknown");
+        assertEquals("a", resultList.getSelectedOrFirstResult().get().getId());
+    }
+
+    @Test
+    public void staleSectionsAreReplacedOrDroppedAtEnd() {
+        resultList.beginUpdate();
+        resultList.appendResults("Pages", results("a"));
+        resultList.appendResults("Apps", results("b"));
+        resultList.endUpdate();
+
+        resultList.beginUpdate();
+        resultList.appendResults("Apps", results("c"));
+        assertEquals("c", resultList.getSelectedOrFirstResult().get().getId());
+
+        // the stale pages section is still shown until the update ends
+        resultList.select("0");
+        assertEquals("a", resultList.getSelectedOrFirstResult().get().getId());
+
+        // the selected result was removed along with its section
+        resultList.endUpdate();
+        assertEquals("c", resultList.getSelectedOrFirstResult().get().getId());
+        resultList.select("0");
+        assertEquals("c", resultList.getSelectedOrFirstResult().get().getId());
+    }
+
+    @Test
+    public void activatesSelectedShowMore() {
+        final AtomicInteger shown = new AtomicInteger();
+        resultList.beginUpdate();
+        resultList.appendResults("Pages", results("a"));
+        resultList.showShowMore("Pages", shown::incrementAndGet);
+
+        assertFalse(resultList.activateSelectedControl());
+        resultList.select("1");
+        assertTrue(resultList.activateSelectedControl());
+        assertEquals(1, shown.get());
+
+        resultList.hideShowMore("Pages");
+        assertFalse(resultList.activateSelectedControl());
+    }
+}
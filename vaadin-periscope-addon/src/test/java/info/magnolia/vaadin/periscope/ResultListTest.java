@@ -0,0 +1,111 @@
+package info.magnolia.vaadin.periscope;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import info.magnolia.vaadin.periscope.result.Result;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.vaadin.ui.Component;
+import com.vaadin.v7.ui.HorizontalLayout;
+import com.vaadin.v7.ui.Label;
+import com.vaadin.v7.ui.VerticalLayout;
+
+public class ResultListTest {
+
+    private final ResultList resultList = new ResultList();
+    private final VerticalLayout layout = (VerticalLayout) resultList.getLayout();
+
+    private static List<Result> results(final String query, final String... ids) {
+        final List<Result> results = new ArrayList<>();
+        for (String id : ids) {
+            results.add(new Result(id + " for " + query, null, id));
+        }
+        return results;
+    }
+
+    private List<Component> components() {
+        final List<Component> components = new ArrayList<>();
+        layout.forEach(components::add);
+        return components;
+    }
+
+    private String text(final int index) {
+        return ((Label) ((HorizontalLayout) layout.getComponent(index)).getComponent(1)).getValue();
+    }
+
+    @Test
+    public void reusesEntriesOfSameId() {
+        resultList.beginUpdate();
+        resultList.appendResults("Pages", results("carg", "a", "b", "c"));
+        resultList.endUpdate();
+        final List<Component> before = components();
+
+        resultList.beginUpdate();
+        resultList.appendResults("Pages", results("cargo", "c", "a", "d"));
+        resultList.endUpdate();
+
+        assertEquals(4, layout.getComponentCount());
+        assertSame(before.get(0), layout.getComponent(0));
+        assertSame(before.get(3), layout.getComponent(1));
+        assertSame(before.get(1), layout.getComponent(2));
+        assertTrue(!before.contains(layout.getComponent(3)));
+        assertEquals("c for cargo", text(1));
+    }
+
+    @Test
+    public void staleSectionsStayUntilReplacedOrUpdateEnds() {
+        resultList.beginUpdate();
+        resultList.appendResults("Pages", results("carg", "a"));
+        resultList.appendResults("Apps", results("carg", "b"));
+        resultList.appendNotice("Assets", "Timed out");
+        resultList.endUpdate();
+        final List<Component> before = components();
+
+        resultList.beginUpdate();
+        resultList.appendResults("Apps", results("cargo", "b"));
+        resultList.appendResults("Pages", results("cargo"));
+
+        // apps moved to the top, pages dropped right away, assets still shown
+        assertEquals(Arrays.asList(before.get(2), before.get(3), before.get(4), before.get(5)), components());
+
+        resultList.endUpdate();
+        assertEquals(Arrays.asList(before.get(2), before.get(3)), components());
+    }
+
+    @Test
+    public void appendsToSectionOfCurrentQuery() {
+        resultList.beginUpdate();
+        resultList.appendResults("Pages", results("carg", "a"));
+        resultList.appendResults("Apps", results("carg", "b"));
+        resultList.appendToSection("Pages", results("carg", "c"));
+        resultList.endUpdate();
+
+        assertEquals("a for carg", text(1));
+        assertEquals("c for carg", text(2));
+        assertEquals("b for carg", text(4));
+    }
+
+    @Test
+    public void selectsByComponentId() {
+        final List<Result> results = results("carg", "a", "b");
+        resultList.beginUpdate();
+        resultList.appendResults("Pages", results);
+        resultList.endUpdate();
+
+        assertSame(results.get(0), resultList.getSelectedOrFirstResult().get());
+        resultList.select(layout.getComponent(2).getId());
+        assertSame(results.get(1), resultList.getSelectedOrFirstResult().get());
+
+        resultList.beginUpdate();
+        resultList.appendResults("Pages", results("cargo", "a"));
+        resultList.endUpdate();
+        assertEquals("a for cargo", resultList.getSelectedOrFirstResult().get().getHtmlText());
+    }
+}
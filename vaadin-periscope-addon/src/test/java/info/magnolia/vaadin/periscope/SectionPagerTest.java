@@ -0,0 +1,75 @@
+package info.magnolia.vaadin.periscope;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import info.magnolia.vaadin.periscope.result.Result;
+import info.magnolia.vaadin.periscope.result.SupplierUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+import com.vaadin.v7.ui.VerticalLayout;
+
+public class SectionPagerTest {
+
+    private final List<Result> catalog = new ArrayList<>();
+    private final List<Integer> fetchedOffsets = new ArrayList<>();
+    private final ResultList resultList = new ResultList();
+
+    public SectionPagerTest() {
+        for (int i = 0; i < 25; i++) {
+            catalog.add(new Result("Result " + i, null, "result-" + i));
+        }
+    }
+
+    private CompletableFuture<List<Result>> fetch(final int offset) {
+        fetchedOffsets.add(offset);
+        return CompletableFuture.completedFuture(SupplierUtil.page(catalog, offset, 10));
+    }
+
+    private SectionPager createPager() {
+        return new SectionPager("Results", resultList, 4, 10, this::fetch, batch -> {
+        }, Runnable::run);
+    }
+
+    @Test
+    public void showsOnePageAndFetchesLazily() {
+        final SectionPager pager = createPager();
+
+        pager.start(fetch(0).join());
+        // heading, four results and the control
+        assertEquals(6, componentCount());
+
+        pager.showMore();
+        assertEquals(1, fetchedOffsets.size());
+        assertEquals(10, componentCount());
+
+        // only two ranked candidates left, so the next batch is fetched
+        pager.showMore();
+        assertEquals(2, fetchedOffsets.size());
+        assertEquals(10, (int) fetchedOffsets.get(1));
+        assertEquals(14, componentCount());
+    }
+
+    @Test
+    public void controlDisappearsWhenExhausted() {
+        final SectionPager pager = createPager();
+
+        pager.start(fetch(0).join());
+        for (int i = 0; i < 10; i++) {
+            pager.showMore();
+        }
+
+        // heading and all results, without control
+        assertEquals(26, componentCount());
+        assertTrue(fetchedOffsets.contains(20));
+    }
+
+    private int componentCount() {
+        return ((VerticalLayout) resultList.getLayout()).getComponentCount();
+    }
+}
@@ -0,0 +1,60 @@
+package info.magnolia.vaadin.periscope.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+public class JmxMetricsTest {
+
+    private final MBeanServer server = MBeanServerFactory.newMBeanServer();
+    private final JmxMetrics metrics = new JmxMetrics(server);
+
+    @Test
+    public void exportsSupplierStats() throws Exception {
+        for (int i = 1; i <= 100; i++) {
+            metrics.searchCompleted("Web, \"sites\"", TimeUnit.MILLISECONDS.toNanos(i), 4);
+        }
+        metrics.searchTimedOut("Web, \"sites\"", TimeUnit.SECONDS.toNanos(1));
+
+        final ObjectName name = new ObjectName(JmxMetrics.DOMAIN + ":type=Supplier,name=" + ObjectName.quote("Web, \"sites\""));
+        assertEquals(101L, server.getAttribute(name, "Count"));
+        assertEquals(1L, server.getAttribute(name, "Timeouts"));
+        assertEquals(4.0, (Double) server.getAttribute(name, "MeanResults"), 0);
+
+        // buckets are accurate to an eighth
+        final double median = (Double) server.getAttribute(name, "MedianMillis");
+        assertTrue(median >= 50 && median <= 50 * 1.125);
+        assertEquals(1000.0, (Double) server.getAttribute(name, "MaxMillis"), 0);
+    }
+
+    @Test
+    public void exportsStagesAndGauges() throws Exception {
+        metrics.stageCompleted(PeriscopeMetrics.Stage.RANKING, TimeUnit.MILLISECONDS.toNanos(3));
+        metrics.registerGauge("dropped picks", () -> 7);
+
+        assertEquals(1L, server.getAttribute(new ObjectName(JmxMetrics.DOMAIN + ":type=Stage,name=\"RANKING\""), "Count"));
+        assertEquals(7L, server.getAttribute(new ObjectName(JmxMetrics.DOMAIN + ":type=Gauge,name=\"dropped picks\""), "Value"));
+
+        metrics.unregister();
+        assertFalse(server.isRegistered(new ObjectName(JmxMetrics.DOMAIN + ":type=Gauge,name=\"dropped picks\"")));
+    }
+
+    @Test
+    public void histogramBucketsCoverAllValues() {
+        long previous = -1;
+        for (int bucket = 0; bucket < 400; bucket++) {
+            final long upper = LatencyHistogram.upperBound(bucket);
+            assertEquals(bucket, LatencyHistogram.bucket(previous + 1));
+            assertEquals(bucket, LatencyHistogram.bucket(upper));
+            previous = upper;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package info.magnolia.vaadin.periscope.order;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the dense one-hot query encoding the ranking network used to get with the sparse one, including the first
+ * layer evaluated on it. Run with the GC profiler to compare allocations:
+ * {@code mvn test-compile exec:java -Dexec.mainClass=info.magnolia.vaadin.periscope.order.EncodingBenchmark
+ * -Dexec.classpathScope=test}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EncodingBenchmark {
+
+    @Param({"git", "magnolia periscope", "Caf\u00e9 Z\u00fcrich"})
+    private String query;
+
+    private final int[] indices = new int[QueryEncoding.INPUT_DIGITS];
+    private final float[] convolution = new float[QueryEncoding.CONV_OUTPUTS];
+    private float[] weights;
+    private float[] bias;
+
+    @Setup
+    public void setUp() {
+        weights = new float[QueryEncoding.CONV_CHANNELS * QueryEncoding.ASCII_CHARS * QueryEncoding.KERNEL_WIDTH];
+        bias = new float[QueryEncoding.CONV_CHANNELS];
+    }
+
+    @Benchmark
+    public float[] denseEncoding() {
+        final String asciiQuery = StringUtils.stripAccents(query);
+        final float[] chars = new float[QueryEncoding.INPUT_CHANNELS];
+        for (int i = 0; i < Math.min(asciiQuery.length(), QueryEncoding.INPUT_DIGITS); i++) {
+            chars[i * QueryEncoding.ASCII_CHARS + asciiQuery.charAt(i) % QueryEncoding.ASCII_CHARS] = 1;
+        }
+        return chars;
+    }
+
+    @Benchmark
+    public int sparseEncoding() {
+        return QueryEncoding.encode(query, indices);
+    }
+
+    @Benchmark
+    public float[] sparseConvolution() {
+        final int count = QueryEncoding.encode(query, indices);
+        QueryEncoding.convolve(indices, count, weights, bias, convolution);
+        return convolution;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EncodingBenchmark.class.getSimpleName()).addProfiler("gc").build()).run();
+    }
+}
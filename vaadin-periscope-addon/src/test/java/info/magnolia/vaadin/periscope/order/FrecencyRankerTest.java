@@ -0,0 +1,88 @@
+package info.magnolia.vaadin.periscope.order;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import info.magnolia.vaadin.periscope.result.Result;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class FrecencyRankerTest {
+
+    private static final long HALF_LIFE = TimeUnit.DAYS.toMillis(1);
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.DAYS.toMillis(1000));
+    private final FrecencyRanker ranker = new FrecencyRanker(HALF_LIFE, 10, now::get);
+
+    private final Result google = new Result("Google", null, "google");
+    private final Result github = new Result("GitHub", null, "github");
+    private final Result gitter = new Result("Gitter", null, "gitter");
+
+    @Test
+    public void frequentlyPickedResultRanksFirst() {
+        ranker.train("g", github);
+        ranker.train("g", github);
+        ranker.train("g", google);
+
+        final List<Result> results = new ArrayList<>(Arrays.asList(gitter, google, github));
+        ranker.sort("g", results);
+
+        assertEquals(Arrays.asList(github, google, gitter), results);
+    }
+
+    @Test
+    public void recentPickOutweighsOldOnes() {
+        ranker.train("g", google);
+        ranker.train("g", google);
+        ranker.train("g", google);
+
+        now.addAndGet(3 * HALF_LIFE);
+        ranker.train("g", github);
+
+        final List<Result> results = new ArrayList<>(Arrays.asList(google, github));
+        ranker.sort("g", results);
+
+        assertEquals(github, results.get(0));
+    }
+
+    @Test
+    public void idsWithEqualHashCodeAndLengthDoNotShareCounters() {
+        final Result aa = new Result("Aa", null, "Aa");
+        final Result bb = new Result("BB", null, "BB");
+        assertEquals(aa.getId().hashCode(), bb.getId().hashCode());
+
+        ranker.train("a", aa);
+
+        assertEquals(Float.NEGATIVE_INFINITY, ranker.score("b", Arrays.asList(bb))[0], 0f);
+    }
+
+    @Test
+    public void utf8HashMatchesHashOfEncodedBytes() {
+        for (String value : new String[]{"", "cargo", "Z\u00fcrich", "\u65e5\u672c\u8a9e", "emoji \uD83D\uDE00", "lone \uD800 surrogate"}) {
+            int expected = 0x811C9DC5;
+            for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+                expected = (expected ^ (b & 0xFF)) * 0x01000193;
+            }
+            assertEquals(value, expected, HashedCounters.utf8Hash(value));
+        }
+    }
+
+    @Test
+    public void scoreIsLogarithmOfDecayedPicks() {
+        ranker.train("g", google);
+        ranker.train("g", google);
+        now.addAndGet(HALF_LIFE);
+
+        final float[] scores = ranker.score("g", Arrays.asList(google, gitter));
+
+        assertEquals(0, scores[0], 1e-4);
+        assertTrue(scores[1] == Float.NEGATIVE_INFINITY);
+    }
+}
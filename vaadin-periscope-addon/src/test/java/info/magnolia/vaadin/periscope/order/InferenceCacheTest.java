@@ -0,0 +1,95 @@
+package info.magnolia.vaadin.periscope.order;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class InferenceCacheTest {
+
+    private final AtomicInteger computations = new AtomicInteger();
+
+    private float[] compute(final String query) {
+        computations.incrementAndGet();
+        return new float[]{query.length()};
+    }
+
+    @Test
+    public void repeatedQueryIsComputedOnce() {
+        final InferenceCache<float[]> cache = new InferenceCache<>(4);
+
+        cache.get("goo", 0, this::compute);
+        cache.get("goog", 0, this::compute);
+        cache.get("goo", 0, this::compute);
+
+        assertEquals(2, computations.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void newVersionIsRecomputed() {
+        final InferenceCache<float[]> cache = new InferenceCache<>(4);
+
+        cache.get("goo", 0, this::compute);
+        cache.get("goo", 1, this::compute);
+
+        assertEquals(2, computations.get());
+    }
+
+    @Test
+    public void leastRecentlyUsedQueryIsEvicted() {
+        final InferenceCache<float[]> cache = new InferenceCache<>(2);
+
+        cache.get("a", 0, this::compute);
+        cache.get("b", 0, this::compute);
+        cache.get("a", 0, this::compute);
+        cache.get("c", 0, this::compute);
+        cache.get("a", 0, this::compute);
+        cache.get("b", 0, this::compute);
+
+        assertEquals(4, computations.get());
+    }
+
+    @Test
+    public void concurrentCallersShareComputation() throws Exception {
+        final InferenceCache<float[]> cache = new InferenceCache<>(4);
+        final CountDownLatch computing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            final Future<float[]> first = executor.submit(() -> cache.get("goo", 0, query -> {
+                computing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return compute(query);
+            }));
+            computing.await();
+
+            final Thread releaser = new Thread(() -> {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                release.countDown();
+            });
+            releaser.start();
+
+            assertEquals(3f, cache.get("goo", 0, this::compute)[0], 0f);
+            assertEquals(3f, first.get()[0], 0f);
+            assertEquals(1, computations.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
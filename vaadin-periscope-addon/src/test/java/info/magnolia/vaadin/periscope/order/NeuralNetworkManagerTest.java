@@ -0,0 +1,83 @@
+package info.magnolia.vaadin.periscope.order;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import info.magnolia.vaadin.periscope.result.Result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class NeuralNetworkManagerTest {
+
+    @Test
+    public void growingTheOutputLayerKeepsTrainedWeights() {
+        final NeuralNetworkManager manager = new NeuralNetworkManager(1000);
+        final Result picked = createResult("picked");
+        manager.addResults(Collections.singletonList(picked));
+        for (int i = 0; i < 5; i++) {
+            manager.train("pick", picked);
+        }
+        final float[] trained = manager.outputWeights(0);
+
+        // more ids than the initial output layer holds
+        manager.addResults(createResults(300));
+
+        assertArrayEquals(trained, manager.outputWeights(0), 0f);
+        assertEquals(301, manager.snapshot().getIds().length);
+    }
+
+    @Test
+    public void recycledSlotForgetsWhatWasLearned() {
+        final NeuralNetworkManager manager = new NeuralNetworkManager(2);
+        final Result picked = createResult("picked");
+        manager.addResults(Collections.singletonList(picked));
+        manager.addResults(Collections.singletonList(createResult("unpicked")));
+        manager.train("pick", picked);
+
+        // evicts the unpicked id
+        manager.addResults(Collections.singletonList(createResult("new")));
+
+        final float[] reset = manager.outputWeights(1);
+        assertArrayEquals(new float[reset.length], reset, 0f);
+    }
+
+    @Test
+    public void sparseInferenceMatchesDenseNetworkOutput() {
+        final NeuralNetworkManager manager = new NeuralNetworkManager(300);
+        final List<Result> results = createResults(10);
+        manager.addResults(results);
+        assertScoresMatchDenseOutput(manager, results);
+
+        // replicas pick up the trained parameters, convolution weights included
+        manager.train("result 3", results.get(3));
+        manager.train("\u00e9t\u00e9 result", results.get(7));
+        assertScoresMatchDenseOutput(manager, results);
+    }
+
+    private static void assertScoresMatchDenseOutput(final NeuralNetworkManager manager, final List<Result> results) {
+        for (String query : new String[]{"", "r", "result 3", "Caf\u00e9 in Z\u00fcrich", "a query longer than the twenty encoded characters"}) {
+            final float[] dense = manager.denseOutput(query);
+            final float[] scores = manager.score(query, results);
+            for (int slot = 0; slot < results.size(); slot++) {
+                assertEquals(query, dense[slot], scores[slot], 1e-5f);
+            }
+        }
+    }
+
+    private static List<Result> createResults(final int count) {
+        final List<Result> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(createResult("result " + i));
+        }
+        return results;
+    }
+
+    private static Result createResult(final String text) {
+        return new Result(text, () -> {
+        });
+    }
+}
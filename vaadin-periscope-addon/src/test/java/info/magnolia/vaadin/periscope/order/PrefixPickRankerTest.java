@@ -0,0 +1,53 @@
+package info.magnolia.vaadin.periscope.order;
+
+import static org.junit.Assert.assertEquals;
+
+import info.magnolia.vaadin.periscope.result.Result;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PrefixPickRankerTest {
+
+    private final PrefixPickRanker ranker = new PrefixPickRanker(10);
+
+    private final Result cargo = new Result("SBB Cargo", null, "sbb-cargo");
+    private final Result cars = new Result("Ebay Cars", null, "ebay-cars");
+
+    @Test
+    public void pickCountsForShorterPrefixes() {
+        ranker.train("cargo", cargo);
+
+        final List<Result> results = new ArrayList<>(Arrays.asList(cars, cargo));
+        ranker.sort("Car", results);
+
+        assertEquals(cargo, results.get(0));
+    }
+
+    @Test
+    public void longerMatchingPrefixOutweighsShorterOne() {
+        ranker.train("ca", cars);
+        ranker.train("cargo", cargo);
+
+        final List<Result> results = new ArrayList<>(Arrays.asList(cars, cargo));
+        ranker.sort("carg", results);
+
+        assertEquals(Arrays.asList(cargo, cars), results);
+    }
+
+    @Test
+    public void idsSharingHashCodeAreCountedApart() {
+        final Result aa = new Result("Aa", null, "Aa");
+        final Result bb = new Result("BB", null, "BB");
+        assertEquals(aa.getId().hashCode(), bb.getId().hashCode());
+
+        ranker.train("a", aa);
+
+        final float[] scores = ranker.score("a", Arrays.asList(aa, bb));
+        assertEquals(1, scores[0], 0);
+        assertEquals(0, scores[1], 0);
+    }
+}
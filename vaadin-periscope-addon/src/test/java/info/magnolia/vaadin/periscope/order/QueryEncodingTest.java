@@ -0,0 +1,80 @@
+package info.magnolia.vaadin.periscope.order;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class QueryEncodingTest {
+
+    @Test
+    public void encodesCharacterPositions() {
+        final int[] indices = new int[QueryEncoding.INPUT_DIGITS];
+
+        final int count = QueryEncoding.encode("ab", indices);
+
+        assertEquals(2, count);
+        assertEquals('a', indices[0]);
+        assertEquals(QueryEncoding.ASCII_CHARS + 'b', indices[1]);
+    }
+
+    @Test
+    public void stripsAccentsAndTruncates() {
+        final int[] accented = new int[QueryEncoding.INPUT_DIGITS];
+        final int[] plain = new int[QueryEncoding.INPUT_DIGITS];
+
+        assertEquals(QueryEncoding.INPUT_DIGITS, QueryEncoding.encode("Caf\u00e9 in Z\u00fcrich, Switzerland", accented));
+        QueryEncoding.encode("Cafe in Zurich, Switzerland", plain);
+
+        assertArrayEquals(plain, accented);
+    }
+
+    @Test
+    public void sparseConvolutionMatchesDenseOne() {
+        final Random random = new Random(7);
+        final float[] weights = new float[QueryEncoding.CONV_CHANNELS * QueryEncoding.ASCII_CHARS * QueryEncoding.KERNEL_WIDTH];
+        final float[] bias = new float[QueryEncoding.CONV_CHANNELS];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = random.nextFloat() - 0.5f;
+        }
+        for (int i = 0; i < bias.length; i++) {
+            bias[i] = random.nextFloat();
+        }
+
+        final String query = "periscope";
+        final int[] indices = new int[QueryEncoding.INPUT_DIGITS];
+        final int count = QueryEncoding.encode(query, indices);
+        final float[] sparse = new float[QueryEncoding.CONV_OUTPUTS];
+        QueryEncoding.convolve(indices, count, weights, bias, sparse);
+
+        final float[] expected = denseConvolution(QueryEncoding.encodeDense(query), weights, bias);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], sparse[i], 1e-5f);
+        }
+    }
+
+    /**
+     * Straightforward convolution of the flat input reshaped to {@code [ASCII_CHARS, INPUT_DIGITS]}, as the network does.
+     */
+    private static float[] denseConvolution(final float[] input, final float[] weights, final float[] bias) {
+        final int height = QueryEncoding.ASCII_CHARS;
+        final int width = QueryEncoding.INPUT_DIGITS;
+        final int kernelWidth = QueryEncoding.KERNEL_WIDTH;
+
+        final float[] output = new float[QueryEncoding.CONV_OUTPUTS];
+        for (int channel = 0; channel < QueryEncoding.CONV_CHANNELS; channel++) {
+            for (int x = 0; x < QueryEncoding.CONV_WIDTH; x++) {
+                float sum = bias[channel];
+                for (int row = 0; row < height; row++) {
+                    for (int k = 0; k < kernelWidth; k++) {
+                        sum += weights[(channel * height + row) * kernelWidth + k] * input[row * width + x + k];
+                    }
+                }
+                output[channel * QueryEncoding.CONV_WIDTH + x] = sum;
+            }
+        }
+        return output;
+    }
+}
@@ -0,0 +1,124 @@
+package info.magnolia.vaadin.periscope.order;
+
+import info.magnolia.vaadin.periscope.result.Result;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares ordering candidates by network output the way {@code NeuralNetworkManager.sort} used to (sorting the whole
+ * vocabulary with {@code indexOf} lookups) with gathering candidate scores and a partial sort, for growing
+ * vocabularies. {@code networkScore} includes inference and shows the end-to-end cost.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.mainClass=info.magnolia.vaadin.periscope.order.RankingBenchmark
+ * -Dexec.classpathScope=test}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RankingBenchmark {
+
+    private static final int CANDIDATES = 20;
+    private static final int TOP = 10;
+    private static final int QUERIES = 256;
+
+    @Param({"256", "1000", "4000", "10000"})
+    private int vocabularySize;
+
+    private List<String> vocabulary;
+    private Map<String, Integer> slots;
+    private float[] output;
+    private List<String> candidates;
+
+    private NeuralNetworkManager networkManager;
+    private List<Result> candidateResults;
+    private String[] queries;
+    private int nextQuery = 0;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+
+        vocabulary = new ArrayList<>(vocabularySize);
+        slots = new HashMap<>();
+        output = new float[vocabularySize];
+        final List<Result> results = new ArrayList<>(vocabularySize);
+        for (int i = 0; i < vocabularySize; i++) {
+            final String id = "result-" + i;
+            vocabulary.add(id);
+            slots.put(id, i);
+            output[i] = random.nextFloat();
+            results.add(new Result(id, () -> {
+            }, id));
+        }
+
+        candidates = new ArrayList<>(CANDIDATES);
+        candidateResults = new ArrayList<>(CANDIDATES);
+        for (int i = 0; i < CANDIDATES; i++) {
+            final int slot = random.nextInt(vocabularySize);
+            candidates.add(vocabulary.get(slot));
+            candidateResults.add(results.get(slot));
+        }
+
+        // more distinct queries than the inference cache holds, so every call runs the network
+        queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = "cargo " + i;
+        }
+
+        networkManager = new NeuralNetworkManager(vocabularySize);
+        networkManager.addResults(results);
+    }
+
+    @Benchmark
+    public List<String> legacySort() {
+        final List<String> sortedIds = new ArrayList<>(vocabulary);
+        sortedIds.sort((a, b) -> Math.round(Math.signum(output[vocabulary.indexOf(b)] - output[vocabulary.indexOf(a)])));
+
+        final List<String> sorted = new ArrayList<>(candidates);
+        sorted.sort(Comparator.comparingInt(sortedIds::indexOf));
+        return sorted;
+    }
+
+    @Benchmark
+    public List<String> scoredTop() {
+        final float[] scores = new float[candidates.size()];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = output[slots.get(candidates.get(i))];
+        }
+        return RankingUtil.top(candidates, scores, TOP);
+    }
+
+    @Benchmark
+    public List<Result> networkScore() {
+        final String query = queries[nextQuery++ % QUERIES];
+        return networkManager.top(query, candidateResults, TOP);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RankingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,38 @@
+package info.magnolia.vaadin.periscope.order;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class RankingUtilTest {
+
+    @Test
+    public void sortsByDescendingScoreKeepingTies() {
+        final List<String> items = new ArrayList<>(Arrays.asList("a", "b", "c", "d", "e"));
+
+        RankingUtil.sortByScore(items, new float[]{0.1f, 0.7f, -2f, 0.7f, Float.NaN});
+
+        assertEquals(Arrays.asList("b", "d", "a", "c", "e"), items);
+    }
+
+    @Test
+    public void topReturnsBestItemsInOrder() {
+        final List<String> items = Arrays.asList("a", "b", "c", "d", "e", "f");
+
+        final List<String> top = RankingUtil.top(items, new float[]{0.3f, 0.9f, 0.1f, 0.5f, 0.9f, -1f}, 3);
+
+        assertEquals(Arrays.asList("b", "e", "d"), top);
+    }
+
+    @Test
+    public void topOfMoreThanAvailableReturnsAll() {
+        final List<String> items = Arrays.asList("a", "b");
+
+        assertEquals(Arrays.asList("b", "a"), RankingUtil.top(items, new float[]{0f, 1f}, 10));
+        assertEquals(0, RankingUtil.top(items, new float[]{0f, 1f}, 0).size());
+    }
+}
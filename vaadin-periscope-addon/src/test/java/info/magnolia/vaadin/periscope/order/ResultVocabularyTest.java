@@ -0,0 +1,96 @@
+package info.magnolia.vaadin.periscope.order;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ResultVocabularyTest {
+
+    private final List<Integer> recycled = new ArrayList<>();
+
+    @Test
+    public void idsGetConsecutiveSlotsUntilFull() {
+        final ResultVocabulary vocabulary = new ResultVocabulary(3);
+
+        assertEquals(0, vocabulary.add("a", recycled::add));
+        assertEquals(1, vocabulary.add("b", recycled::add));
+        assertEquals(0, vocabulary.add("a", recycled::add));
+        assertEquals(2, vocabulary.add("c", recycled::add));
+
+        assertEquals(3, vocabulary.size());
+        assertTrue(recycled.isEmpty());
+    }
+
+    @Test
+    public void neverPickedIdsAreEvictedFirstInInsertionOrder() {
+        final ResultVocabulary vocabulary = new ResultVocabulary(3);
+        vocabulary.add("a", recycled::add);
+        vocabulary.add("b", recycled::add);
+        vocabulary.add("c", recycled::add);
+        vocabulary.picked(vocabulary.slotOf("a"));
+
+        assertEquals(1, vocabulary.add("d", recycled::add));
+        assertEquals(2, vocabulary.add("e", recycled::add));
+
+        assertFalse(vocabulary.contains("b"));
+        assertFalse(vocabulary.contains("c"));
+        assertTrue(vocabulary.contains("a"));
+    }
+
+    @Test
+    public void leastFrequentlyPickedIdIsEvictedOnceAllWerePicked() {
+        final ResultVocabulary vocabulary = new ResultVocabulary(3);
+        for (String id : new String[]{"a", "b", "c"}) {
+            vocabulary.add(id, recycled::add);
+        }
+        vocabulary.picked(0);
+        vocabulary.picked(0);
+        vocabulary.picked(1);
+        vocabulary.picked(2);
+        vocabulary.picked(2);
+
+        assertEquals(1, vocabulary.add("d", recycled::add));
+        assertFalse(vocabulary.contains("b"));
+    }
+
+    @Test
+    public void recycledSlotIsReportedAndStartsUnpicked() {
+        final ResultVocabulary vocabulary = new ResultVocabulary(2);
+        vocabulary.add("a", recycled::add);
+        vocabulary.add("b", recycled::add);
+        vocabulary.picked(0);
+        vocabulary.picked(1);
+        vocabulary.picked(1);
+
+        final int slot = vocabulary.add("c", recycled::add);
+
+        assertEquals(0, slot);
+        assertEquals(1, recycled.size());
+        assertEquals(0, (int) recycled.get(0));
+        assertEquals("c", vocabulary.idAt(slot));
+        assertEquals(0, vocabulary.pickCount(slot));
+        assertEquals(-1, vocabulary.slotOf("a"));
+        assertArrayEquals(new String[]{"c", "b"}, vocabulary.ids());
+
+        // the new id is the first candidate for the next eviction
+        assertEquals(0, vocabulary.add("d", recycled::add));
+    }
+
+    @Test
+    public void slotsGrowBeyondInitialCapacity() {
+        final ResultVocabulary vocabulary = new ResultVocabulary(1000);
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, vocabulary.add("id" + i, recycled::add));
+        }
+
+        assertEquals(500, vocabulary.size());
+        assertEquals("id499", vocabulary.idAt(499));
+        assertTrue(recycled.isEmpty());
+    }
+}
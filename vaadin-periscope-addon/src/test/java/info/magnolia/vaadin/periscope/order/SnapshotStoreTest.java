@@ -0,0 +1,81 @@
+package info.magnolia.vaadin.periscope.order;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SnapshotStoreTest {
+
+    private Path directory;
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("periscope-snapshots");
+        file = directory.resolve("ranking.snapshot");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(path -> path.toFile().delete());
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void snapshotSurvivesRoundTrip() throws IOException {
+        final NetworkSnapshot snapshot = new NetworkSnapshot(4, new String[]{"google", "g\u00efthub"}, new int[]{3, 0}, new float[]{0.5f, -1.25f, 7f});
+        final SnapshotStore store = new SnapshotStore(file);
+
+        store.write(snapshot);
+        final NetworkSnapshot restored = store.read();
+
+        assertEquals(4, restored.getOutputs());
+        assertArrayEquals(snapshot.getIds(), restored.getIds());
+        assertArrayEquals(snapshot.getPicks(), restored.getPicks());
+        assertEquals(3, restored.getParams().length);
+        assertEquals(-1.25f, restored.getParams()[1], 0f);
+    }
+
+    @Test
+    public void overwritingLeavesNoTemporaryFiles() throws IOException {
+        final SnapshotStore store = new SnapshotStore(file);
+
+        store.write(new NetworkSnapshot(1, new String[]{"a"}, new int[]{1}, new float[]{1f}));
+        store.write(new NetworkSnapshot(1, new String[]{"b"}, new int[]{2}, new float[]{2f}));
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+        assertEquals("b", store.read().getIds()[0]);
+    }
+
+    @Test
+    public void corruptSnapshotIsRejected() throws IOException {
+        final SnapshotStore store = new SnapshotStore(file);
+        store.write(new NetworkSnapshot(1, new String[]{"a"}, new int[]{1}, new float[]{1f}));
+
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(20);
+            raw.write(0x7f);
+        }
+
+        try {
+            store.read();
+            fail("Corrupt snapshot was read");
+        } catch (IOException expected) {
+            // checksum mismatch
+        }
+    }
+}
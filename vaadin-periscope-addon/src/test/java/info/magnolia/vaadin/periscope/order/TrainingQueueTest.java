@@ -0,0 +1,158 @@
+package info.magnolia.vaadin.periscope.order;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import info.magnolia.vaadin.periscope.result.Result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class TrainingQueueTest {
+
+    private final Result google = new Result("Google", null, "google");
+    private final Result github = new Result("GitHub", null, "github");
+    private final List<TrainingQueue> queues = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        queues.forEach(TrainingQueue::close);
+    }
+
+    @Test
+    public void flushWaitsForQueuedPicks() throws InterruptedException {
+        final RecordingRanker delegate = new RecordingRanker();
+        final TrainingQueue queue = createQueue(delegate);
+
+        queue.train("g", google);
+        queue.train("gi", github);
+        queue.flush();
+
+        assertEquals(2, delegate.trainedPicks());
+    }
+
+    @Test
+    public void duplicatePicksAreCollapsed() throws InterruptedException {
+        final RecordingRanker delegate = new RecordingRanker();
+        final CountDownLatch blocked = delegate.blockNextBatch();
+        final TrainingQueue queue = createQueue(delegate, 16, 16);
+
+        // first pick occupies the trainer, so the following ones end up in a single batch
+        queue.train("x", google);
+        delegate.awaitTraining();
+        queue.train("g", github);
+        queue.train("g", github);
+        queue.train("g", google);
+        blocked.countDown();
+        queue.flush();
+
+        final List<Pick> batch = delegate.batches.get(1);
+        assertEquals(2, batch.size());
+        assertEquals(github, batch.get(0).getResult());
+        assertEquals(2, batch.get(0).getCount());
+        assertEquals(1, batch.get(1).getCount());
+    }
+
+    @Test
+    public void picksAreDroppedWhenQueueIsFull() throws InterruptedException {
+        final RecordingRanker delegate = new RecordingRanker();
+        final CountDownLatch blocked = delegate.blockNextBatch();
+        final TrainingQueue queue = createQueue(delegate, 1, 1);
+
+        queue.train("a", google);
+        delegate.awaitTraining();
+        queue.train("b", google);
+        queue.train("c", google);
+        blocked.countDown();
+        queue.flush();
+
+        assertEquals(1, queue.getDroppedPicks());
+        assertEquals(2, delegate.trainedPicks());
+        assertTrue(delegate.batches.stream().allMatch(batch -> batch.size() == 1));
+    }
+
+    @Test
+    public void closeStopsTrainingAndDropsFurtherPicks() throws InterruptedException {
+        final RecordingRanker delegate = new RecordingRanker();
+        final TrainingQueue queue = createQueue(delegate);
+        queue.train("g", google);
+        queue.flush();
+
+        queue.close();
+        queue.train("g", github);
+        queue.flush();
+
+        assertEquals(1, delegate.trainedPicks());
+        assertEquals(1, queue.getDroppedPicks());
+    }
+
+    @Test
+    public void pickCountsArePassedOn() throws InterruptedException {
+        final RecordingRanker delegate = new RecordingRanker();
+        final TrainingQueue queue = createQueue(delegate);
+
+        queue.train(Collections.singletonList(new Pick("g", google, 3)));
+        queue.flush();
+
+        assertEquals(3, delegate.batches.get(0).get(0).getCount());
+    }
+
+    private TrainingQueue createQueue(final Ranker delegate) {
+        return createQueue(delegate, 1024, 32);
+    }
+
+    private TrainingQueue createQueue(final Ranker delegate, final int capacity, final int batchSize) {
+        final TrainingQueue queue = new TrainingQueue(delegate, capacity, batchSize);
+        queues.add(queue);
+        return queue;
+    }
+
+    private static class RecordingRanker implements Ranker {
+        private final List<List<Pick>> batches = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch training = new CountDownLatch(1);
+        private volatile CountDownLatch gate;
+
+        CountDownLatch blockNextBatch() {
+            gate = new CountDownLatch(1);
+            return gate;
+        }
+
+        void awaitTraining() throws InterruptedException {
+            training.await();
+        }
+
+        int trainedPicks() {
+            return batches.stream().mapToInt(List::size).sum();
+        }
+
+        @Override
+        public void train(final String query, final Result result) {
+            train(Collections.singletonList(new Pick(query, result)));
+        }
+
+        @Override
+        public void train(final List<Pick> picks) {
+            batches.add(new ArrayList<>(picks));
+            training.countDown();
+            final CountDownLatch current = gate;
+            if (current != null) {
+                gate = null;
+                try {
+                    current.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public float[] score(final String query, final List<Result> candidates) {
+            return new float[candidates.size()];
+        }
+    }
+}
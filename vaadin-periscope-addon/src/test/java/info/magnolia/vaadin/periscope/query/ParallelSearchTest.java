@@ -0,0 +1,204 @@
+package info.magnolia.vaadin.periscope.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import info.magnolia.vaadin.periscope.result.CancellationToken;
+import info.magnolia.vaadin.periscope.result.QueryContext;
+import info.magnolia.vaadin.periscope.result.Result;
+import info.magnolia.vaadin.periscope.result.ResultSupplier;
+import info.magnolia.vaadin.periscope.result.SearchCancelledException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelSearchTest {
+
+    private ExecutorService executor;
+    private ParallelSearch parallelSearch;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        parallelSearch = new ParallelSearch(executor);
+        parallelSearch.setTimeout(500);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void suppliersRunInParallelAndYieldInOrder() {
+        parallelSearch.setTimeout(5000);
+        // each supplier only returns once all of them have started, so they have to overlap
+        final CountDownLatch started = new CountDownLatch(3);
+        final CountDownLatch fastDone = new CountDownLatch(1);
+        final List<ResultSupplier> suppliers = Arrays.asList(
+                new OverlappingSupplier("slow", started, fastDone, null),
+                new OverlappingSupplier("fast", started, new CountDownLatch(0), fastDone),
+                new OverlappingSupplier("medium", started, new CountDownLatch(0), null));
+
+        final List<String> titles = new ArrayList<>();
+        parallelSearch.start(suppliers, "query").forEach(outcome -> {
+            assertFalse(outcome.isTimedOut());
+            assertEquals(1, outcome.getResults().size());
+            titles.add(outcome.getSupplier().getTitle());
+        });
+
+        assertEquals(Arrays.asList("slow", "fast", "medium"), titles);
+    }
+
+    @Test
+    public void slowSupplierIsReportedAsTimedOut() {
+        final ResultSupplier slow = new SleepingSupplier("slow", 5000);
+        parallelSearch.setTimeout(slow, 50);
+
+        final List<SearchOutcome> outcomes = new ArrayList<>();
+        parallelSearch.start(Arrays.asList(slow, new SleepingSupplier("fast", 0)), "query").forEach(outcomes::add);
+
+        assertTrue(outcomes.get(0).isTimedOut());
+        assertFalse(outcomes.get(1).isTimedOut());
+        assertFalse(outcomes.get(1).getFailure().isPresent());
+    }
+
+    @Test
+    public void failingSupplierIsReportedAsFailed() {
+        final ResultSupplier failing = new ResultSupplier() {
+            @Override
+            public String getTitle() {
+                return "failing";
+            }
+
+            @Override
+            public List<Result> search(final String query) {
+                throw new IllegalStateException("backend down");
+            }
+        };
+
+        final SearchOutcome outcome = parallelSearch.start(Collections.singletonList(failing), "query").iterator().next();
+
+        assertTrue(outcome.getFailure().get() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void pageIsSearchedOnTheExecutor() throws Exception {
+        final List<Thread> searchThreads = new ArrayList<>();
+        final ResultSupplier supplier = new ResultSupplier() {
+            @Override
+            public String getTitle() {
+                return "paged";
+            }
+
+            @Override
+            public List<Result> search(final String query) {
+                searchThreads.add(Thread.currentThread());
+                return Arrays.asList(new Result("a", () -> {
+                }), new Result("b", () -> {
+                }), new Result("c", () -> {
+                }));
+            }
+        };
+
+        final List<Result> page = parallelSearch.searchPage(supplier, "query", QueryContext.unbounded(), 1, 1).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, page.size());
+        assertEquals("b", page.get(0).getHtmlText());
+        assertNotSame(Thread.currentThread(), searchThreads.get(0));
+    }
+
+    @Test
+    public void cancellingTheQueryCancelsThePage() throws Exception {
+        final QueryContext context = new QueryContext(new CancellationToken(), Long.MAX_VALUE);
+        final CompletableFuture<List<Result>> page = parallelSearch.searchPage(new SleepingSupplier("slow", 5000), "query", context, 0, 10);
+
+        context.getToken().cancel();
+
+        try {
+            page.get(5, TimeUnit.SECONDS);
+            fail("Page was not cancelled");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SearchCancelledException);
+        }
+    }
+
+    private static class OverlappingSupplier implements ResultSupplier {
+
+        private final String title;
+        private final CountDownLatch started;
+        private final CountDownLatch before;
+        private final CountDownLatch after;
+
+        OverlappingSupplier(final String title, final CountDownLatch started, final CountDownLatch before, final CountDownLatch after) {
+            this.title = title;
+            this.started = started;
+            this.before = before;
+            this.after = after;
+        }
+
+        @Override
+        public String getTitle() {
+            return title;
+        }
+
+        @Override
+        public List<Result> search(final String query) {
+            started.countDown();
+            try {
+                if (!started.await(5, TimeUnit.SECONDS) || !before.await(5, TimeUnit.SECONDS)) {
+                    return Collections.emptyList();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Collections.emptyList();
+            }
+            if (after != null) {
+                after.countDown();
+            }
+            return Collections.singletonList(new Result(title, () -> {
+            }));
+        }
+    }
+
+    private static class SleepingSupplier implements ResultSupplier {
+
+        private final String title;
+        private final long sleep;
+
+        SleepingSupplier(final String title, final long sleep) {
+            this.title = title;
+            this.sleep = sleep;
+        }
+
+        @Override
+        public String getTitle() {
+            return title;
+        }
+
+        @Override
+        public List<Result> search(final String query) {
+            try {
+                Thread.sleep(sleep);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Collections.emptyList();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package info.magnolia.vaadin.periscope.query;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryDispatcherTest {
+
+    private SimulatedScheduler scheduler;
+    private List<String> dispatched;
+    private QueryDispatcher dispatcher;
+
+    @Before
+    public void setUp() {
+        scheduler = new SimulatedScheduler();
+        dispatched = new ArrayList<>();
+        dispatcher = new QueryDispatcher(dispatched::add, scheduler);
+        dispatcher.setMinimumDelay(50);
+        dispatcher.setMaximumDelay(400);
+        dispatcher.setLatencyFactor(1);
+        dispatcher.setSmoothing(1);
+    }
+
+    @Test
+    public void dispatchesOnlyLatestQueryOfABurst() {
+        dispatcher.submit("c");
+        scheduler.advance(20);
+        dispatcher.submit("ca");
+        scheduler.advance(20);
+        dispatcher.submit("car");
+
+        scheduler.advance(49);
+        assertEquals(0, dispatched.size());
+
+        scheduler.advance(1);
+        assertEquals(1, dispatched.size());
+        assertEquals("car", dispatched.get(0));
+        assertEquals(2, dispatcher.getDroppedQueries());
+    }
+
+    @Test
+    public void dispatchesEachQueryAfterPause() {
+        dispatcher.submit("c");
+        scheduler.advance(100);
+        dispatcher.submit("ca");
+        scheduler.advance(100);
+
+        assertEquals(2, dispatched.size());
+        assertEquals("ca", dispatched.get(1));
+    }
+
+    @Test
+    public void dropsQueryEqualToLastDispatched() {
+        dispatcher.submit("car");
+        scheduler.advance(100);
+        dispatcher.submit("carg");
+        scheduler.advance(10);
+        dispatcher.submit("car");
+        scheduler.advance(100);
+
+        assertEquals(1, dispatched.size());
+    }
+
+    @Test
+    public void windowAdaptsToMeasuredLatency() {
+        dispatcher.recordLatency(200);
+        assertEquals(200, dispatcher.getDelay());
+
+        dispatcher.submit("c");
+        scheduler.advance(199);
+        assertEquals(0, dispatched.size());
+        scheduler.advance(1);
+        assertEquals(1, dispatched.size());
+    }
+
+    @Test
+    public void windowIsClamped() {
+        dispatcher.recordLatency(5);
+        assertEquals(50, dispatcher.getDelay());
+
+        dispatcher.recordLatency(5000);
+        assertEquals(400, dispatcher.getDelay());
+    }
+
+    @Test
+    public void bypassSupersedesPendingQuery() {
+        dispatcher.submit("car");
+        dispatcher.bypass("cargo");
+        scheduler.advance(100);
+        dispatcher.submit("cargo");
+        scheduler.advance(100);
+
+        assertEquals(0, dispatched.size());
+    }
+
+    /**
+     * Runs scheduled tasks on simulated time which only moves when advanced explicitly.
+     */
+    private static class SimulatedScheduler implements QueryDispatcher.Scheduler {
+
+        private final List<Scheduled> tasks = new ArrayList<>();
+        private long now = 0;
+
+        @Override
+        public Future<?> schedule(final Runnable task, final long delayMillis) {
+            final Scheduled scheduled = new Scheduled(now + delayMillis, task);
+            tasks.add(scheduled);
+            return scheduled.future;
+        }
+
+        void advance(final long millis) {
+            now += millis;
+            final List<Scheduled> due = new ArrayList<>();
+            for (Iterator<Scheduled> iterator = tasks.iterator(); iterator.hasNext(); ) {
+                final Scheduled scheduled = iterator.next();
+                if (scheduled.dueAt <= now) {
+                    due.add(scheduled);
+                    iterator.remove();
+                }
+            }
+            due.forEach(scheduled -> scheduled.future.run());
+        }
+    }
+
+    private static class Scheduled {
+        private final long dueAt;
+        private final FutureTask<Void> future;
+
+        Scheduled(final long dueAt, final Runnable task) {
+            this.dueAt = dueAt;
+            this.future = new FutureTask<>(task, null);
+        }
+    }
+}
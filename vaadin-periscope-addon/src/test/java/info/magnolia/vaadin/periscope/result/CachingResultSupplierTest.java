@@ -0,0 +1,256 @@
+package info.magnolia.vaadin.periscope.result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class CachingResultSupplierTest {
+
+    private static final long TIME_TO_LIVE = 1000;
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void repeatedQueryIsServedFromCache() {
+        final NamesSupplier names = new NamesSupplier();
+        final CachingResultSupplier supplier = new CachingResultSupplier(names, TIME_TO_LIVE, 10, now::get);
+
+        supplier.search("car");
+        supplier.search("car");
+
+        assertEquals(Arrays.asList("car"), names.searches);
+    }
+
+    @Test
+    public void expiredResultsAreSearchedAgain() {
+        final NamesSupplier names = new NamesSupplier();
+        final CachingResultSupplier supplier = new CachingResultSupplier(names, TIME_TO_LIVE, 10, now::get);
+
+        supplier.search("car");
+        now.addAndGet(TIME_TO_LIVE + 1);
+        supplier.search("car");
+
+        assertEquals(Arrays.asList("car", "car"), names.searches);
+    }
+
+    @Test
+    public void leastRecentlyUsedQueryIsEvicted() {
+        final NamesSupplier names = new NamesSupplier();
+        final CachingResultSupplier supplier = new CachingResultSupplier(names, TIME_TO_LIVE, 2, now::get);
+
+        supplier.search("a");
+        supplier.search("b");
+        supplier.search("a");
+        supplier.search("c");
+        supplier.search("b");
+
+        assertEquals(Arrays.asList("a", "b", "c", "b"), names.searches);
+    }
+
+    @Test
+    public void refinedQueryNarrowsCachedResults() {
+        final NarrowingNamesSupplier names = new NarrowingNamesSupplier();
+        final CachingResultSupplier supplier = new CachingResultSupplier(names, TIME_TO_LIVE, 10, now::get);
+
+        supplier.search("car");
+        final List<Result> narrowed = supplier.search("carg");
+
+        assertEquals(Arrays.asList("car"), names.searches);
+        assertEquals(Arrays.asList("Cargo", "Cargold"), ids(narrowed));
+        assertEquals(ids(names.search("carg")), ids(narrowed));
+    }
+
+    @Test
+    public void unrelatedQueryIsNotNarrowed() {
+        final NarrowingNamesSupplier names = new NarrowingNamesSupplier();
+        final CachingResultSupplier supplier = new CachingResultSupplier(names, TIME_TO_LIVE, 10, now::get);
+
+        supplier.search("car");
+        supplier.search("go");
+
+        assertEquals(Arrays.asList("car", "go"), names.searches);
+    }
+
+    @Test
+    public void failedAsyncSearchIsNotCached() {
+        final List<String> searches = new ArrayList<>();
+        final CompletableFuture<List<Result>> failing = new CompletableFuture<>();
+        final AsyncResultSupplier async = new AsyncResultSupplier() {
+            @Override
+            public String getTitle() {
+                return "Failing";
+            }
+
+            @Override
+            public CompletableFuture<List<Result>> search(final String query) {
+                searches.add(query);
+                return searches.size() == 1 ? failing : CompletableFuture.completedFuture(new ArrayList<>());
+            }
+        };
+        final CachingAsyncResultSupplier supplier = new CachingAsyncResultSupplier(async, TIME_TO_LIVE, 10, now::get);
+
+        supplier.search("car");
+        failing.completeExceptionally(new IllegalStateException("Backend down"));
+        assertTrue(supplier.search("car").isDone());
+        supplier.search("car");
+
+        assertEquals(Arrays.asList("car", "car"), searches);
+    }
+
+    @Test
+    public void cancellingOneSearchKeepsSharedSearchForOthers() throws Exception {
+        final PendingSupplier pending = new PendingSupplier();
+        final CachingAsyncResultSupplier supplier = new CachingAsyncResultSupplier(pending, TIME_TO_LIVE, 10, now::get);
+        final QueryContext first = new QueryContext(new CancellationToken(), Long.MAX_VALUE);
+
+        final CompletableFuture<List<Result>> cancelled = supplier.search("car", first);
+        final CompletableFuture<List<Result>> joined = supplier.search("car", QueryContext.unbounded());
+        first.getToken().cancel();
+
+        assertTrue(cancelled.isCompletedExceptionally());
+        assertFalse(pending.context.isCancelled());
+        pending.results.complete(Collections.singletonList(new Result("Cargo", null, "Cargo")));
+        assertEquals(Arrays.asList("Cargo"), ids(joined.get()));
+        assertEquals(1, pending.searches);
+    }
+
+    @Test
+    public void sharedSearchIsCancelledOnceAllSearchesAre() {
+        final PendingSupplier pending = new PendingSupplier();
+        final CachingAsyncResultSupplier supplier = new CachingAsyncResultSupplier(pending, TIME_TO_LIVE, 10, now::get);
+        final QueryContext first = new QueryContext(new CancellationToken(), Long.MAX_VALUE);
+        final QueryContext second = new QueryContext(new CancellationToken(), Long.MAX_VALUE);
+
+        supplier.search("car", first);
+        supplier.search("car", second);
+        first.getToken().cancel();
+        assertFalse(pending.context.isCancelled());
+        second.getToken().cancel();
+
+        assertTrue(pending.context.isCancelled());
+    }
+
+    @Test
+    public void deadlineOnlyFailsItsOwnSearch() throws Exception {
+        final PendingSupplier pending = new PendingSupplier();
+        final CachingAsyncResultSupplier supplier = new CachingAsyncResultSupplier(pending, TIME_TO_LIVE, 10, now::get);
+
+        final CompletableFuture<List<Result>> expiring = supplier.search("car",
+                new QueryContext(new CancellationToken(), System.currentTimeMillis() + 20));
+        final CompletableFuture<List<Result>> joined = supplier.search("car", QueryContext.unbounded());
+
+        try {
+            expiring.get(1, TimeUnit.SECONDS);
+            fail("Search did not expire");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SearchCancelledException);
+        }
+        assertFalse(pending.context.isExpired());
+        assertFalse(joined.isDone());
+    }
+
+    @Test
+    public void sortingReturnedResultsLeavesCacheUnchanged() {
+        final CachingResultSupplier supplier = new CachingResultSupplier(new NamesSupplier(), TIME_TO_LIVE, 10, now::get);
+
+        final List<Result> first = supplier.search("car");
+        Collections.reverse(first);
+        final List<Result> page = supplier.search("car", QueryContext.unbounded(), 0, 10);
+        page.sort(Comparator.comparing(Result::getId).reversed());
+
+        assertEquals(Arrays.asList("Cargo", "Cargold", "Carnival"), ids(supplier.search("car")));
+        assertEquals(Arrays.asList("Cargold", "Carnival"), ids(supplier.search("car", QueryContext.unbounded(), 1, 10)));
+    }
+
+    @Test
+    public void sortingReturnedAsyncResultsLeavesCacheUnchanged() {
+        final NamesSupplier names = new NamesSupplier();
+        final AsyncResultSupplier async = new AsyncResultSupplier() {
+            @Override
+            public String getTitle() {
+                return names.getTitle();
+            }
+
+            @Override
+            public CompletableFuture<List<Result>> search(final String query) {
+                return CompletableFuture.completedFuture(names.search(query));
+            }
+        };
+        final CachingAsyncResultSupplier supplier = new CachingAsyncResultSupplier(async, TIME_TO_LIVE, 10, now::get);
+
+        Collections.reverse(supplier.search("car").join());
+        supplier.search("car", QueryContext.unbounded(), 0, 10).join().sort(Comparator.comparing(Result::getId).reversed());
+
+        assertEquals(Arrays.asList("Cargo", "Cargold", "Carnival"), ids(supplier.search("car").join()));
+        assertEquals(Arrays.asList("car"), names.searches);
+    }
+
+    private static List<String> ids(final List<Result> results) {
+        return results.stream().map(Result::getId).collect(Collectors.toList());
+    }
+
+    private static class PendingSupplier implements AsyncResultSupplier {
+        private final CompletableFuture<List<Result>> results = new CompletableFuture<>();
+        private QueryContext context;
+        private int searches = 0;
+
+        @Override
+        public String getTitle() {
+            return "Pending";
+        }
+
+        @Override
+        public CompletableFuture<List<Result>> search(final String query) {
+            return search(query, QueryContext.unbounded());
+        }
+
+        @Override
+        public CompletableFuture<List<Result>> search(final String query, final QueryContext context) {
+            this.context = context;
+            searches++;
+            return results;
+        }
+    }
+
+    private static class NamesSupplier implements ResultSupplier {
+        private static final List<String> NAMES = Arrays.asList("Cargo", "Cargold", "Carnival", "Bingo");
+
+        final List<String> searches = new ArrayList<>();
+
+        @Override
+        public String getTitle() {
+            return "Names";
+        }
+
+        @Override
+        public List<Result> search(final String query) {
+            searches.add(query);
+            return NAMES.stream()
+                    .filter(name -> name.toLowerCase().contains(query))
+                    .map(name -> new Result(name, null, name))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static class NarrowingNamesSupplier extends NamesSupplier implements NarrowingSupplier {
+        @Override
+        public Optional<Result> narrow(final Result result, final String query) {
+            return result.getId().toLowerCase().contains(query) ? Optional.of(result) : Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package info.magnolia.vaadin.periscope.result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class DatasetHolderTest {
+
+    @Test
+    public void readersKeepOldSnapshotWhileReloading() throws Exception {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final DatasetHolder<String> holder = new DatasetHolder<>("old", () -> {
+            loading.countDown();
+            release.await();
+            return "new";
+        });
+
+        final CompletableFuture<String> reload = holder.reload();
+        loading.await();
+        assertEquals("old", holder.get());
+
+        release.countDown();
+        assertEquals("new", reload.get());
+        assertEquals("new", holder.get());
+        holder.stop();
+    }
+
+    @Test
+    public void queuedReloadsAreCoalesced() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final DatasetHolder<Integer> holder = new DatasetHolder<>(0, () -> {
+            release.await();
+            return loads.incrementAndGet();
+        });
+
+        final CompletableFuture<Integer> running = holder.reload();
+        // requests join the queued reload until the first one has started running
+        CompletableFuture<Integer> queued = holder.reload();
+        while (queued == running) {
+            Thread.sleep(1);
+            queued = holder.reload();
+        }
+        assertSame(queued, holder.reload());
+
+        release.countDown();
+        assertEquals(1, (int) running.get());
+        assertEquals(2, (int) queued.get());
+        holder.stop();
+    }
+
+    @Test
+    public void failedReloadKeepsSnapshot() throws InterruptedException {
+        final DatasetHolder<String> holder = new DatasetHolder<>("old", () -> {
+            throw new IllegalStateException("Catalog unavailable");
+        });
+
+        try {
+            holder.reload().get();
+            fail("Reload did not fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals("old", holder.get());
+        holder.stop();
+    }
+
+    @Test
+    public void listenersSeePublishedSnapshots() throws Exception {
+        final List<String> published = new ArrayList<>();
+        final DatasetHolder<String> holder = new DatasetHolder<>(() -> "catalog");
+        holder.onReload(published::add);
+
+        holder.reload().get();
+
+        assertEquals("catalog", holder.get());
+        assertEquals(1, published.size());
+        holder.stop();
+    }
+
+    @Test
+    public void failingListenerDoesNotFailReload() throws Exception {
+        final List<String> published = new ArrayList<>();
+        final DatasetHolder<String> holder = new DatasetHolder<>("old", () -> "new");
+        holder.onReload(snapshot -> {
+            throw new IllegalStateException("Listener failed");
+        });
+        holder.onReload(published::add);
+
+        assertEquals("new", holder.reload().get());
+
+        assertEquals("new", holder.get());
+        assertEquals(1, published.size());
+        holder.stop();
+    }
+
+    @Test
+    public void replacedSnapshotsAreClosed() throws Exception {
+        final Snapshot first = new Snapshot();
+        final Snapshot second = new Snapshot();
+        final DatasetHolder<Snapshot> holder = new DatasetHolder<>(first, () -> second);
+
+        holder.reload().get();
+
+        assertTrue(first.closed);
+        assertFalse(second.closed);
+        holder.stop();
+    }
+
+    private static class Snapshot implements AutoCloseable {
+        private volatile boolean closed;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
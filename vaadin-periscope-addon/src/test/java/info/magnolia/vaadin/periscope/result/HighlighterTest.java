@@ -0,0 +1,55 @@
+package info.magnolia.vaadin.periscope.result;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class HighlighterTest {
+
+    @Test
+    public void highlightsAllTermsIgnoringCase() {
+        final Highlighter highlighter = Highlighter.ofWords("car SHIP");
+        assertEquals("<strong>Car</strong>go <strong>ship</strong> and <strong>car</strong>", highlighter.highlight("Cargo ship and car"));
+        assertEquals("no match", highlighter.highlight("no match"));
+    }
+
+    @Test
+    public void mergesOverlappingAndAdjacentSpans() {
+        assertEquals("<strong>aaaa</strong>b", Highlighter.of("aa").highlight("aaaab"));
+        assertEquals("x<strong>abcd</strong>y", Highlighter.of("abc", "bcd").highlight("xabcdy"));
+        assertEquals("<strong>carship</strong>", Highlighter.of("car", "ship").highlight("carship"));
+    }
+
+    @Test
+    public void mergesLongMatchReachingBackOverSeveralSpans() {
+        assertArrayEquals(new int[]{0, 4}, Highlighter.of("a", "c", "abcd").findMatches("abcd"));
+        assertEquals("<strong>abcd</strong>", Highlighter.of("a", "c", "abcd").highlight("abcd"));
+        assertArrayEquals(new int[]{0, 1, 2, 8}, Highlighter.of("x", "b", "d", "bcdef", "fg").findMatches("xabcdefgh"));
+    }
+
+    @Test
+    public void findsTermsInsideLongerCandidates() {
+        // "abd" fails after "ab", the automaton has to fall back to "bc"
+        assertEquals("a<strong>bc</strong>", Highlighter.of("abd", "bc").highlight("abc"));
+        assertEquals("<strong>she</strong>", Highlighter.of("he", "she").highlight("she"));
+    }
+
+    @Test
+    public void escapesHtmlAroundAndInsideSpans() {
+        assertEquals("&lt;b&gt; <strong>&amp;co</strong> &quot;x&quot;", Highlighter.of("&co").highlight("<b> &co \"x\""));
+    }
+
+    @Test
+    public void ignoresBlankTerms() {
+        assertEquals("a &lt; b", Highlighter.of("", " ").highlight("a < b"));
+        assertEquals("a &lt; b", SupplierUtil.highlight("a < b", null));
+    }
+
+    @Test
+    public void findsMatchOffsetsForRenderingLater() {
+        final int[] matches = Highlighter.of("car").findMatches("Cargo & car");
+        assertArrayEquals(new int[]{0, 3, 8, 11}, matches);
+        assertEquals("<strong>Car</strong>go &amp; <strong>car</strong>", Highlighter.toHtml("Cargo & car", matches));
+    }
+}
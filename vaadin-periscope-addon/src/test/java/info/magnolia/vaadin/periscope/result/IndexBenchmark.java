@@ -0,0 +1,95 @@
+package info.magnolia.vaadin.periscope.result;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares scanning a catalog with lower-casing every entry, as {@code WebsiteSupplier} used to, with an
+ * {@link IndexedResultSupplier}, for growing catalogs of synthetic names.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.mainClass=info.magnolia.vaadin.periscope.result.IndexBenchmark
+ * -Dexec.classpathScope=test}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IndexBenchmark {
+
+    private static final int LIMIT = 50;
+    private static final String[] SYLLABLES = {"car", "go", "mag", "no", "li", "a", "pe", "ri", "scope", "bing", "hub", "cat"};
+
+    @Param({"1000", "100000", "300000"})
+    private int catalogSize;
+
+    @Param({"c", "car", "scopeli"})
+    private String query;
+
+    private Map<String, String> catalog;
+    private IndexedResultSupplier<String> indexed;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        catalog = new HashMap<>();
+        for (int i = 0; catalog.size() < catalogSize; i++) {
+            final StringBuilder name = new StringBuilder();
+            for (int j = 0; j < 2 + random.nextInt(4); j++) {
+                name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            name.append(' ').append(i);
+            catalog.put(name.toString(), "https://example.com/" + i);
+        }
+
+        indexed = new IndexedResultSupplier<String>(catalog, LIMIT) {
+            @Override
+            public String getTitle() {
+                return "Indexed";
+            }
+
+            @Override
+            protected Result createResult(final String name, final String url, final String query) {
+                return new Result(name, null, name);
+            }
+        };
+    }
+
+    @Benchmark
+    public List<Result> scan() {
+        return catalog.entrySet().stream()
+                .filter(entry -> entry.getKey().toLowerCase().contains(query.toLowerCase()))
+                .limit(LIMIT)
+                .map(entry -> new Result(entry.getKey(), null, entry.getKey()))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Result> index() {
+        return indexed.search(query);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(IndexBenchmark.class.getSimpleName()).build()).run();
+    }
+}
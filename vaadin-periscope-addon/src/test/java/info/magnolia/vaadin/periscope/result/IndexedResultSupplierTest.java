@@ -0,0 +1,113 @@
+package info.magnolia.vaadin.periscope.result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class IndexedResultSupplierTest {
+
+    @Test
+    public void findsSubstringsCaseInsensitively() {
+        final NameSupplier supplier = new NameSupplier(10, "SBB Cargo", "Cargold collection", "Graphel Carbon", "Bing");
+
+        assertEquals(set("SBB Cargo", "Cargold collection"), set(ids(supplier.search("CARG"))));
+        assertEquals(set("SBB Cargo", "Cargold collection", "Graphel Carbon"), set(ids(supplier.search("car"))));
+        assertEquals(set("Bing"), set(ids(supplier.search("in"))));
+        assertTrue(supplier.search("cargos").isEmpty());
+    }
+
+    @Test
+    public void prefixMatchesComeFirst() {
+        final NameSupplier supplier = new NameSupplier(10, "SBB Cargo", "Cargold collection", "Ebay Cars", "Carnival");
+
+        assertEquals(Arrays.asList("Cargold collection", "Carnival", "Ebay Cars", "SBB Cargo"), ids(supplier.search("car")));
+    }
+
+    @Test
+    public void resultsAreLimited() {
+        final NameSupplier supplier = new NameSupplier(2, "Cargo", "Cargold", "SBB Cargo", "Carnival");
+
+        assertEquals(Arrays.asList("Cargo", "Cargold"), ids(supplier.search("car")));
+    }
+
+    @Test
+    public void pagesGoBeyondLimit() {
+        final NameSupplier supplier = new NameSupplier(2, "Cargo", "Cargold", "SBB Cargo", "Carnival");
+
+        assertEquals(Arrays.asList("Carnival", "SBB Cargo"), ids(supplier.search("car", QueryContext.unbounded(), 2, 2)));
+        assertEquals(Arrays.asList("SBB Cargo"), ids(supplier.search("car", QueryContext.unbounded(), 3, 5)));
+        assertTrue(supplier.search("car", QueryContext.unbounded(), 4, 2).isEmpty());
+    }
+
+    @Test
+    public void matchesSameEntriesAsScan() {
+        final Random random = new Random(3);
+        final String[] names = new String[2000];
+        for (int i = 0; i < names.length; i++) {
+            final StringBuilder name = new StringBuilder();
+            for (int j = 0; j < 4 + random.nextInt(12); j++) {
+                name.append((char) ('a' + random.nextInt(6)));
+            }
+            names[i] = name.toString() + i;
+        }
+        final NameSupplier supplier = new NameSupplier(Integer.MAX_VALUE, names);
+
+        for (String query : Arrays.asList("a", "ab", "abc", "cafe", "fed1", "bbbb", "42")) {
+            final Set<String> expected = Arrays.stream(names).filter(name -> name.contains(query)).collect(Collectors.toSet());
+            assertEquals(query, expected, set(ids(supplier.search(query))));
+        }
+    }
+
+    @Test
+    public void looksUpEntriesByName() {
+        final NameSupplier supplier = new NameSupplier(10, "Bing", "bing");
+
+        assertEquals("bing!", supplier.getEntry("bing").get());
+        assertTrue(!supplier.getEntry("BING").isPresent());
+    }
+
+    private static List<String> ids(final List<Result> results) {
+        return results.stream().map(Result::getId).collect(Collectors.toList());
+    }
+
+    private static Set<String> set(final String... names) {
+        return new HashSet<>(Arrays.asList(names));
+    }
+
+    private static Set<String> set(final List<String> names) {
+        return new HashSet<>(names);
+    }
+
+    private static class NameSupplier extends IndexedResultSupplier<String> {
+
+        NameSupplier(final int limit, final String... names) {
+            super(catalog(names), limit);
+        }
+
+        private static Map<String, String> catalog(final String... names) {
+            final Map<String, String> catalog = new LinkedHashMap<>();
+            Arrays.stream(names).forEach(name -> catalog.put(name, name + "!"));
+            return catalog;
+        }
+
+        @Override
+        public String getTitle() {
+            return "Names";
+        }
+
+        @Override
+        protected Result createResult(final String name, final String entry, final String query) {
+            return new Result(name, null, name);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package info.magnolia.vaadin.periscope.result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedIndexResultSupplierTest {
+
+    private Path indexFile;
+
+    @Before
+    public void setUp() throws IOException {
+        indexFile = Files.createTempFile("periscope", ".index");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(indexFile);
+    }
+
+    @Test
+    public void findsPrefixMatchesFirstThenSubstrings() throws IOException {
+        new MappedIndexBuilder()
+                .add("SBB Cargo", "http://www.sbbcargo.com/")
+                .add("Cargold collection", "http://www.cargold-collection.com/")
+                .add("Ebay Cars", "https://www.ebay.com/motors")
+                .add("Bing", "http://www.bing.com/")
+                .write(indexFile);
+
+        try (NameSupplier supplier = new NameSupplier(indexFile, 10)) {
+            assertEquals(Arrays.asList("Cargold collection", "Ebay Cars", "SBB Cargo"), names(supplier.search("CAR")));
+            assertEquals("http://www.bing.com/", supplier.search("bin").get(0).getId());
+            assertTrue(supplier.search("cargos").isEmpty());
+        }
+    }
+
+    @Test
+    public void readsQuotedCsv() throws IOException {
+        new MappedIndexBuilder()
+                .readCsv(new StringReader("\"Peninsulas, of \"\"europe\"\"\",https://www.quora.com/\r\nGoogle,http://www.google.com/\nSlashdot\n"))
+                .write(indexFile);
+
+        try (NameSupplier supplier = new NameSupplier(indexFile, 10)) {
+            assertEquals(3, supplier.size());
+            assertEquals(Arrays.asList("Peninsulas, of \"europe\""), names(supplier.search("europe")));
+            assertEquals("", supplier.search("slash").get(0).getId());
+        }
+    }
+
+    @Test
+    public void matchesSameEntriesAsScanAndRespectsLimit() throws IOException {
+        final Random random = new Random(5);
+        // several hash partitions of the n-gram table, built from several sorted runs
+        final MappedIndexBuilder builder = new MappedIndexBuilder(500, 700);
+        final String[] names = new String[3000];
+        for (int i = 0; i < names.length; i++) {
+            final StringBuilder name = new StringBuilder();
+            for (int j = 0; j < 3 + random.nextInt(10); j++) {
+                name.append((char) ('a' + random.nextInt(5)));
+            }
+            names[i] = name.append(i).toString();
+            builder.add(names[i], "value " + i);
+        }
+        builder.write(indexFile);
+
+        try (NameSupplier unlimited = new NameSupplier(indexFile, Integer.MAX_VALUE);
+             NameSupplier limited = new NameSupplier(indexFile, 7)) {
+            for (String query : Arrays.asList("a", "de", "abc", "eeda", "17", "zz")) {
+                final Set<String> expected = Arrays.stream(names).filter(name -> name.contains(query)).collect(Collectors.toSet());
+                assertEquals(query, expected, new HashSet<>(names(unlimited.search(query))));
+                assertEquals(Math.min(7, expected.size()), limited.search(query).size());
+            }
+        }
+    }
+
+    @Test
+    public void pagesGoBeyondLimit() throws IOException {
+        new MappedIndexBuilder().add("Cargo", "1").add("Cargold", "2").add("SBB Cargo", "3").add("Carnival", "4").write(indexFile);
+
+        try (NameSupplier supplier = new NameSupplier(indexFile, 2)) {
+            assertEquals(Arrays.asList("Cargo", "Cargold"), names(supplier.search("car")));
+            assertEquals(Arrays.asList("Carnival", "SBB Cargo"), names(supplier.search("car", QueryContext.unbounded(), 2, 2)));
+            assertTrue(supplier.search("car", QueryContext.unbounded(), 4, 2).isEmpty());
+        }
+    }
+
+    @Test
+    public void rewritingReplacesIndexWithoutLeavingTemporaryFiles() throws IOException {
+        new MappedIndexBuilder().add("Cargo", "1").write(indexFile);
+        new MappedIndexBuilder().add("Carnival", "2").add("Bingo", "3").write(indexFile);
+
+        try (NameSupplier supplier = new NameSupplier(indexFile, 10)) {
+            assertEquals(2, supplier.size());
+            assertEquals(Arrays.asList("Carnival"), names(supplier.search("car")));
+        }
+        try (Stream<Path> siblings = Files.list(indexFile.getParent())) {
+            assertFalse(siblings.anyMatch(file -> file.getFileName().toString().startsWith(indexFile.getFileName() + ".")));
+        }
+    }
+
+    private static List<String> names(final List<Result> results) {
+        return results.stream().map(Result::getHtmlText).collect(Collectors.toList());
+    }
+
+    private static class NameSupplier extends MappedIndexResultSupplier {
+
+        NameSupplier(final Path indexFile, final int limit) throws IOException {
+            super(indexFile, limit);
+        }
+
+        @Override
+        public String getTitle() {
+            return "Names";
+        }
+
+        @Override
+        protected Result createResult(final String name, final String value, final String query) {
+            return new Result(name, null, value);
+        }
+    }
+}
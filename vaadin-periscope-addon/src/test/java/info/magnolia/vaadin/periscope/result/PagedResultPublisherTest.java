@@ -0,0 +1,162 @@
+package info.magnolia.vaadin.periscope.result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class PagedResultPublisherTest {
+
+    private static final int PAGES = 3;
+
+    private final List<Integer> loadedPages = new ArrayList<>();
+
+    private List<Result> loadPage(final int page) {
+        loadedPages.add(page);
+        return page < PAGES ? Collections.singletonList(new Result("Page " + page, null, "page-" + page)) : Collections.emptyList();
+    }
+
+    @Test
+    public void pagesAreLoadedOnDemand() {
+        final PagedResultPublisher publisher = new PagedResultPublisher(this::loadPage, QueryContext.unbounded(), Runnable::run);
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+        publisher.subscribe(subscriber);
+        assertTrue(loadedPages.isEmpty());
+
+        subscriber.subscription.request(2);
+        assertEquals(2, subscriber.chunks.size());
+        assertEquals(2, loadedPages.size());
+
+        subscriber.subscription.request(5);
+        assertEquals(PAGES, subscriber.chunks.size());
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void cancelledSubscriptionStopsLoading() {
+        final PagedResultPublisher publisher = new PagedResultPublisher(this::loadPage, QueryContext.unbounded(), Runnable::run);
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(1);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(1);
+
+        assertEquals(1, loadedPages.size());
+        assertTrue(!subscriber.completed);
+    }
+
+    @Test
+    public void failingPageIsSignalled() {
+        final PagedResultPublisher publisher = new PagedResultPublisher(page -> {
+            throw new IllegalStateException("Backend down");
+        }, QueryContext.unbounded(), Runnable::run);
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(1);
+
+        assertTrue(subscriber.failure instanceof IllegalStateException);
+    }
+
+    @Test
+    public void expiredDeadlineIsSignalled() {
+        final QueryContext expired = new QueryContext(new CancellationToken(), System.currentTimeMillis() - 1);
+        final PagedResultPublisher publisher = new PagedResultPublisher(this::loadPage, expired, Runnable::run);
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(1);
+
+        assertTrue(loadedPages.isEmpty());
+        assertTrue(subscriber.failure instanceof SearchCancelledException);
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    public void cancelledTokenIsSignalled() {
+        final QueryContext context = new QueryContext(new CancellationToken(), Long.MAX_VALUE);
+        final PagedResultPublisher publisher = new PagedResultPublisher(page -> {
+            context.getToken().cancel();
+            return loadPage(page);
+        }, context, Runnable::run);
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(2);
+
+        assertTrue(subscriber.chunks.isEmpty());
+        assertTrue(subscriber.failure instanceof SearchCancelledException);
+    }
+
+    @Test
+    public void streamingSupplierFailsPastDeadline() throws Exception {
+        final CompletableFuture<List<Result>> results = pagedSupplier().search("page",
+                new QueryContext(new CancellationToken(), System.currentTimeMillis() - 1));
+
+        try {
+            results.get(1, TimeUnit.SECONDS);
+            fail("Search did not fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SearchCancelledException);
+        }
+    }
+
+    @Test
+    public void streamingSupplierCollectsAllChunks() throws Exception {
+        final CompletableFuture<List<Result>> results = pagedSupplier().search("page");
+
+        assertEquals(PAGES, results.get().size());
+    }
+
+    private StreamingResultSupplier pagedSupplier() {
+        return new StreamingResultSupplier() {
+            @Override
+            public String getTitle() {
+                return "Pages";
+            }
+
+            @Override
+            public ResultPublisher stream(final String query, final QueryContext context) {
+                return new PagedResultPublisher(PagedResultPublisherTest.this::loadPage, context, Runnable::run);
+            }
+        };
+    }
+
+    private static class RecordingSubscriber implements ResultSubscriber {
+        private final List<List<Result>> chunks = new ArrayList<>();
+        private ResultSubscription subscription;
+        private Throwable failure;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(final ResultSubscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(final List<Result> chunk) {
+            chunks.add(chunk);
+        }
+
+        @Override
+        public void onError(final Throwable failure) {
+            this.failure = failure;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package info.magnolia.vaadin.periscope.result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ResultTest {
+
+    @Test
+    public void plainTextResultIsHighlightedWhenRendered() {
+        final Result result = Result.ofText("Cargo <b>", new int[]{0, 3}, null);
+
+        assertEquals("Cargo <b>", result.getId());
+        assertEquals("Cargo <b>", result.getText().get());
+        assertEquals("<strong>Car</strong>go &lt;b&gt;", result.getHtmlText());
+    }
+
+    @Test
+    public void htmlResultKeepsItsHtml() {
+        final Result result = new Result("<strong>Car</strong>go", null, "cargo");
+
+        assertEquals("cargo", result.getId());
+        assertEquals("<strong>Car</strong>go", result.getHtmlText());
+        assertFalse(result.getText().isPresent());
+        assertFalse(result.getMatches().isPresent());
+    }
+
+    @Test
+    public void plainTextResultWithoutMatches() {
+        final Result result = Result.ofText("Cargo", null, null, "id", "icon");
+
+        assertEquals("id", result.getId());
+        assertEquals("Cargo", result.getHtmlText());
+        assertTrue(result.getMatches().isPresent());
+    }
+
+    @Test
+    public void htmlResultWithNullArguments() {
+        final Result result = new Result("<b>Cargo</b>", null, null);
+
+        assertEquals("Cargo", result.getId());
+        assertFalse(result.getText().isPresent());
+    }
+}
@@ -0,0 +1,96 @@
+package info.magnolia.vaadin.periscope.result;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class SupplierUtilTest {
+
+    @Test
+    public void cancellingContextInterruptsAsyncSearch() throws Exception {
+        final QueryContext context = new QueryContext(new CancellationToken(), Long.MAX_VALUE);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+
+        final CompletableFuture<String> search = SupplierUtil.supplyAsync(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(10000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "late";
+        }, context);
+
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        context.getToken().cancel();
+
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        try {
+            search.get(1, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SearchCancelledException);
+            return;
+        }
+        throw new AssertionError("Search should have been cancelled");
+    }
+
+    @Test
+    public void childTokenIsCancelledWithParent() {
+        final CancellationToken parent = new CancellationToken();
+        final CancellationToken child = parent.newChild();
+
+        child.cancel();
+        assertTrue(!parent.isCancelled());
+
+        final CancellationToken sibling = parent.newChild();
+        parent.cancel();
+        assertTrue(sibling.isCancelled());
+    }
+
+    @Test(expected = SearchCancelledException.class)
+    public void checkCancelledThrowsPastDeadline() {
+        SupplierUtil.checkCancelled(new QueryContext(new CancellationToken(), System.currentTimeMillis() - 1));
+    }
+
+    @Test
+    public void highlightWrapsAllOccurrences() {
+        assertEquals("<strong>Car</strong>go <strong>car</strong>", SupplierUtil.highlight("Cargo car", "car"));
+    }
+
+    @Test
+    public void highlightEscapesText() {
+        assertEquals("<strong>a</strong> &lt;b&gt;", SupplierUtil.highlight("a <b>", "a"));
+    }
+
+    @Test
+    public void highlighterOfContextIsSharedByDerivedContexts() {
+        final Highlighter highlighter = Highlighter.of("car");
+        final QueryContext context = QueryContext.unbounded().withHighlighter(highlighter);
+        final QueryContext derived = context.forSupplier(Long.MAX_VALUE).withSpan(context.getSpan()).withDeadline(Long.MAX_VALUE);
+
+        assertSame(highlighter, derived.getHighlighter().get());
+        assertSame(derived, derived.withHighlighterOf("car"));
+        assertEquals("<strong>Car</strong>go", SupplierUtil.highlight("Cargo", "car", derived));
+        assertArrayEquals(new int[]{0, 3}, SupplierUtil.findMatches("Cargo", "car", derived));
+    }
+
+    @Test
+    public void contextWithoutHighlighterGetsOneOfTheQuery() {
+        final QueryContext context = QueryContext.unbounded();
+
+        assertFalse(context.getHighlighter().isPresent());
+        assertEquals(Arrays.asList("car"), context.withHighlighterOf("car").getHighlighter().get().getTerms());
+        assertArrayEquals(new int[]{0, 3}, SupplierUtil.findMatches("Cargo", "car", context));
+    }
+}
@@ -0,0 +1,109 @@
+package info.magnolia.vaadin.periscope.tracing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileSpanExporterTest {
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("spans", ".jsonl");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void spansAreAppendedAsJsonLines() throws IOException {
+        final FileSpanExporter exporter = new FileSpanExporter(file);
+        final Span root = new Tracer(exporter).startTrace("query", System.nanoTime()).attribute("query", "say \"hi\"\n");
+        root.child("search").attribute("results", 3).attribute("cached", true).end();
+        root.end();
+        exporter.close();
+
+        final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+
+        final String trace = Long.toHexString(root.getTraceId());
+        final String rootId = Long.toHexString(root.getSpanId());
+        assertTrue(lines.get(0).startsWith("{\"trace\":\"" + trace + "\",\"span\":\""));
+        assertTrue(lines.get(0).contains(",\"parent\":\"" + rootId + "\",\"name\":\"search\","));
+        assertTrue(lines.get(0).endsWith(",\"attributes\":{\"results\":3,\"cached\":true}}"));
+        assertTrue(lines.get(1).startsWith("{\"trace\":\"" + trace + "\",\"span\":\"" + rootId + "\",\"name\":\"query\","));
+        assertTrue(lines.get(1).endsWith(",\"attributes\":{\"query\":\"say \\\"hi\\\"\\n\"}}"));
+    }
+
+    @Test
+    public void spansAreExportedOnceWhenEnded() {
+        final List<Span> exported = Collections.synchronizedList(new ArrayList<>());
+        final Span root = new Tracer(exported::add).startTrace("query", System.nanoTime());
+        final Span child = root.child("rank");
+
+        assertTrue(exported.isEmpty());
+        child.end();
+        child.end();
+        child.attribute("late", 1);
+
+        assertEquals(Collections.singletonList(child), exported);
+        assertEquals(root.getTraceId(), child.getTraceId());
+        assertEquals(root.getSpanId(), child.getParentId());
+        assertEquals(0, root.getParentId());
+        assertTrue(child.getAttributes().isEmpty());
+        assertTrue(child.getDurationMicros() >= 0);
+    }
+
+    @Test
+    public void noopTracerRecordsNothing() {
+        final Span root = Tracer.noop().startTrace("query", System.nanoTime());
+
+        assertFalse(root.isRecording());
+        assertSame(root, root.child("search").attribute("results", 3));
+        root.end();
+        assertTrue(root.getAttributes().isEmpty());
+    }
+
+    @Test
+    public void spansAfterCloseAreDropped() throws IOException {
+        final FileSpanExporter exporter = new FileSpanExporter(file);
+        final Tracer tracer = new Tracer(exporter);
+        exporter.close();
+
+        tracer.startTrace("query", System.nanoTime()).end();
+
+        assertEquals(1, exporter.getDroppedSpans());
+        assertEquals(0, Files.size(file));
+    }
+
+    @Test
+    public void queriesAreOnlyRecordedWhenEnabled() {
+        final List<Span> exported = new ArrayList<>();
+        final Span redacted = new Tracer(exported::add).startTrace("query", System.nanoTime())
+                .query("secret").error(new IllegalStateException("No results for secret"));
+        final Span verbatim = new Tracer(exported::add, true).startTrace("query", System.nanoTime())
+                .query("secret").error(new IllegalStateException("No results for secret"));
+
+        assertEquals(6, redacted.getAttributes().get("queryLength"));
+        assertFalse(redacted.getAttributes().containsKey("query"));
+        assertEquals(IllegalStateException.class.getName(), redacted.getAttributes().get("error"));
+        assertEquals("secret", verbatim.getAttributes().get("query"));
+        assertEquals("java.lang.IllegalStateException: No results for secret", verbatim.getAttributes().get("error"));
+    }
+}
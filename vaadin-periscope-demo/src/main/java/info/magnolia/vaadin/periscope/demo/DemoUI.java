@@ -3,7 +3,12 @@ package info.magnolia.vaadin.periscope.demo;
 import info.magnolia.vaadin.periscope.Periscope;
 import info.magnolia.vaadin.periscope.demo.suppliers.WebsiteSupplier;
 import info.magnolia.vaadin.periscope.demo.suppliers.WikipediaSupplier;
+import info.magnolia.vaadin.periscope.metrics.JmxMetrics;
+import info.magnolia.vaadin.periscope.result.CachingResultSupplier;
+import info.magnolia.vaadin.periscope.tracing.FileSpanExporter;
+import info.magnolia.vaadin.periscope.tracing.Tracer;
 
+import java.nio.file.Paths;
 import java.util.Collections;
 
 import javax.servlet.annotation.WebServlet;
@@ -24,6 +29,14 @@ import com.vaadin.v7.ui.VerticalLayout;
 @SuppressWarnings("serial")
 public class DemoUI extends UI {
 
+    // shared by all sessions, so the MBeans cover every search
+    private static final JmxMetrics METRICS = new JmxMetrics();
+
+    // e.g. -Dperiscope.traceFile=spans.jsonl to record every keystroke for offline analysis; what was typed is only
+    // recorded with -Dperiscope.traceQueries=true
+    private static final Tracer TRACER = System.getProperty("periscope.traceFile") == null ? Tracer.noop()
+            : new Tracer(new FileSpanExporter(Paths.get(System.getProperty("periscope.traceFile"))), Boolean.getBoolean("periscope.traceQueries"));
+
     @WebServlet(value = "/*", asyncSupported = true)
     @VaadinServletConfiguration(productionMode = false, ui = DemoUI.class)
     public static class Servlet extends VaadinServlet {
@@ -33,7 +46,9 @@ public class DemoUI extends UI {
     protected void init(VaadinRequest request) {
 
         // Initialize our new UI component
-        final Periscope component = new Periscope(Collections.singleton(new WebsiteSupplier()), Collections.singleton(new WikipediaSupplier()));
+        final Periscope component = new Periscope(Collections.singleton(new CachingResultSupplier(new WebsiteSupplier())), Collections.singleton(new WikipediaSupplier()));
+        component.setMetrics(METRICS);
+        component.setTracer(TRACER);
 
         // Show it in the middle of the screen
         final VerticalLayout layout = new VerticalLayout();
@@ -1,23 +1,26 @@
 package info.magnolia.vaadin.periscope.demo.suppliers;
 
+import info.magnolia.vaadin.periscope.result.IndexedResultSupplier;
+import info.magnolia.vaadin.periscope.result.NarrowingSupplier;
+import info.magnolia.vaadin.periscope.result.QueryContext;
 import info.magnolia.vaadin.periscope.result.Result;
-import info.magnolia.vaadin.periscope.result.ResultSupplier;
-import info.magnolia.vaadin.periscope.result.SearchFailedException;
 import info.magnolia.vaadin.periscope.result.SupplierUtil;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
 import com.vaadin.ui.UI;
 
-public class WebsiteSupplier implements ResultSupplier {
-
-    private final Map<String, String> websites;
+public class WebsiteSupplier extends IndexedResultSupplier<String> implements NarrowingSupplier {
 
     public WebsiteSupplier() {
-        websites = new HashMap<>();
+        // the catalog is small enough to show all matches, which keeps narrowing cached results valid
+        super(createWebsites(), Integer.MAX_VALUE);
+    }
+
+    private static Map<String, String> createWebsites() {
+        final Map<String, String> websites = new HashMap<>();
         websites.put("Google", "http://www.google.com/");
         websites.put("Bing", "http://www.bing.com/");
         websites.put("Magnolia CMS", "http://www.magnolia-cms.com/");
@@ -38,6 +41,7 @@ public class WebsiteSupplier implements ResultSupplier {
         websites.put("1CarGames", "http://www.1cargames.com/");
         websites.put("Ebay Cars", "https://www.ebay.com/motors");
         websites.put("Carnival Cruise Line", "https://www.carnival.com/");
+        return websites;
     }
 
 
@@ -47,11 +51,22 @@ public class WebsiteSupplier implements ResultSupplier {
     }
 
     @Override
-    public List<Result> search(final String query) throws SearchFailedException {
-        return websites.entrySet().stream()
-                .filter(entry -> entry.getKey().toLowerCase().contains(query.toLowerCase()))
-                .map(entry -> new Result(SupplierUtil.highlight(entry.getKey(), query), () -> openInNewTab(entry.getValue())))
-                .collect(Collectors.toList());
+    public Optional<Result> narrow(final Result result, final String query) {
+        final String name = result.getId();
+        if (!name.toLowerCase().contains(query.toLowerCase())) {
+            return Optional.empty();
+        }
+        return getEntry(name).map(url -> createResult(name, url, query));
+    }
+
+    @Override
+    protected Result createResult(final String name, final String url, final String query) {
+        return createResult(name, url, query, QueryContext.unbounded());
+    }
+
+    @Override
+    protected Result createResult(final String name, final String url, final String query, final QueryContext context) {
+        return Result.ofText(name, SupplierUtil.findMatches(name, query, context), () -> openInNewTab(url));
     }
 
     private void openInNewTab(final String url) {
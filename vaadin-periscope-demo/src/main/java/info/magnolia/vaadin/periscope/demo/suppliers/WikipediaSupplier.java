@@ -1,8 +1,10 @@
 package info.magnolia.vaadin.periscope.demo.suppliers;
 
 import info.magnolia.vaadin.periscope.result.AsyncResultSupplier;
+import info.magnolia.vaadin.periscope.result.QueryContext;
 import info.magnolia.vaadin.periscope.result.Result;
 import info.magnolia.vaadin.periscope.result.SearchFailedException;
+import info.magnolia.vaadin.periscope.result.SupplierUtil;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
@@ -35,28 +37,40 @@ public class WikipediaSupplier implements AsyncResultSupplier {
 
     @Override
     public CompletableFuture<List<Result>> search(final String query) throws SearchFailedException {
+        return search(query, QueryContext.unbounded());
+    }
+
+    @Override
+    public CompletableFuture<List<Result>> search(final String query, final QueryContext context) throws SearchFailedException {
         final String cleanedQuery = query.toLowerCase().replaceFirst("^wikipedia ", "");
 
-        return CompletableFuture.supplyAsync(() -> findWikipediaPages(cleanedQuery));
+        return SupplierUtil.supplyAsync(() -> findWikipediaPages(cleanedQuery, context), context);
     }
 
-    private List<Result> findWikipediaPages(String query) {
+    private List<Result> findWikipediaPages(String query, QueryContext context) {
         if (query.isEmpty()) {
             return Collections.emptyList();
         }
 
         final Client client = ClientBuilder.newClient();
+        // closing the client aborts a request which is still in flight
+        context.getToken().onCancel(client::close);
         try {
+            SupplierUtil.checkCancelled(context);
+
             final WebTarget target = client.target(String.format(API_URL_TEMPLATE, URLEncoder.encode(query, "UTF-8")));
             final JsonObject resultJson = Json.parse(target.request(MediaType.APPLICATION_JSON_TYPE).get(String.class));
 
-            return compileResults(resultJson);
+            SupplierUtil.checkCancelled(context);
+            return compileResults(resultJson, query, context);
         } catch (UnsupportedEncodingException e) {
             throw new RuntimeException("UTF-8 is not supported");
+        } finally {
+            client.close();
         }
     }
 
-    private List<Result> compileResults(final JsonObject resultJson) {
+    private List<Result> compileResults(final JsonObject resultJson, final String query, final QueryContext context) {
         final JsonObject pagesNode = resultJson.getObject("query").get("pages");
 
         final List<Result> results = new ArrayList<>();
@@ -68,7 +82,8 @@ public class WikipediaSupplier implements AsyncResultSupplier {
 
             final JsonObject pageNode = pagesNode.get(id);
             final String pageUrl = String.format(PAGE_URL_TEMPLATE, id);
-            results.add(new Result(pageNode.getString("title"), () -> openInNewTab(pageUrl)));
+            final String title = pageNode.getString("title");
+            results.add(Result.ofText(title, SupplierUtil.findMatches(title, query, context), () -> openInNewTab(pageUrl)));
         }
 
         return results;